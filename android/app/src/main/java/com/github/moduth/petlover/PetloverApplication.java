@@ -1,16 +1,27 @@
 package com.github.moduth.petlover;
 
 import android.app.Application;
+import android.util.Log;
 
 import com.burnweb.rnsimplealertdialog.RNSimpleAlertDialogPackage;
+import com.facebook.drawee.backends.pipeline.Fresco;
+import com.facebook.imagepipeline.backends.okhttp3.OkHttpImagePipelineConfigFactory;
 import com.facebook.react.ReactApplication;
 import com.facebook.react.ReactNativeHost;
 import com.facebook.react.ReactPackage;
 import com.facebook.react.shell.MainReactPackage;
+import com.github.moduth.ext.component.cache.sp.ConfigManager;
 import com.github.moduth.ext.component.logger.DebugLogger;
+import com.github.moduth.ext.component.logger.HttpLogTransport;
+import com.github.moduth.ext.component.logger.LogShipper;
 import com.github.moduth.ext.component.logger.Logger;
 import com.github.moduth.ext.component.logger.ReleaseLogger;
 import com.github.moduth.ext.utils.ProcessUtils;
+import com.github.moduth.petlover.data.network.DefaultRetryPolicy;
+import com.github.moduth.petlover.data.network.NetworkConfig;
+import com.github.moduth.petlover.data.network.NetworkEngine;
+import com.github.moduth.petlover.data.network.PetloverService;
+import com.github.moduth.petlover.domain.interactor.UseCase;
 import com.github.moduth.petlover.internal.di.components.ApplicationComponent;
 import com.github.moduth.petlover.internal.di.components.DaggerApplicationComponent;
 import com.github.moduth.petlover.internal.di.module.ApplicationModule;
@@ -18,6 +29,7 @@ import com.i18n.reactnativei18n.ReactNativeI18n;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import cn.smssdk.EventHandler;
 import cn.smssdk.SMSSDK;
@@ -25,6 +37,7 @@ import cn.smssdk.SMSSDK;
 public class PetloverApplication extends Application {
 
     private final static String TAG = "PetloverApplication";
+    private final static String LOG_UPLOAD_PATH = "log/upload";
 
     private ApplicationComponent mApplicationComponent;
 
@@ -37,7 +50,12 @@ public class PetloverApplication extends Application {
         if(!ProcessUtils.isMainProcess(this)){
             return ;
         }
+        ConfigManager.init(this);
+        // read off the main thread, the first getString() waits for it instead of loading again
+        ConfigManager.preload(ConfigManager.KEY_APPLICATION, ConfigManager.KEY_ACCOUNT,
+                ConfigManager.KEY_SECURE, ConfigManager.KEY_LOGGER);
         initLog();
+        initNetwork();
         initInjector();
     }
 
@@ -46,9 +64,28 @@ public class PetloverApplication extends Application {
             Logger.init(this, DebugLogger.getInstance());
 //            FLog.setMinimumLoggingLevel(FLog.VERBOSE);
         } else {
+            // verbose calls return before formatting, and the file log drops them too
+            Logger.setLevel(Log.DEBUG);
             Logger.init(this, ReleaseLogger.getInstance());
         }
+        // rolled log files go up on wifi or while charging
+        LogShipper.start(this, new HttpLogTransport(PetloverService.getBaseUrl() + LOG_UPLOAD_PATH));
     }
+
+    private void initNetwork() {
+        NetworkEngine.init(new NetworkConfig.Builder()
+                .maxRequestsPerHost(8)
+                .maxIdleConnections(8)
+                .keepAliveDuration(5, TimeUnit.MINUTES)
+                .http2Enabled(true)
+                .build());
+        // images share the api client's connection pool and dispatcher
+        Fresco.initialize(this, OkHttpImagePipelineConfigFactory
+                .newBuilder(this, NetworkEngine.getInstance().getImageClient())
+                .build());
+        UseCase.setRetryPolicy(new DefaultRetryPolicy());
+    }
+
     private void initInjector() {
         mApplicationComponent = DaggerApplicationComponent.builder()
                 .applicationModule(new ApplicationModule(this))
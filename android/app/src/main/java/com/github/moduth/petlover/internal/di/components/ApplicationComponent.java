@@ -27,6 +27,8 @@ package com.github.moduth.petlover.internal.di.components;
 import android.content.Context;
 
 
+import com.github.moduth.petlover.data.cache.DiskLruCache;
+import com.github.moduth.petlover.data.cache.EntityCache;
 import com.github.moduth.petlover.domain.executor.PostExecutionThread;
 import com.github.moduth.petlover.domain.executor.ThreadExecutor;
 import com.github.moduth.petlover.internal.di.module.ApplicationModule;
@@ -53,6 +55,10 @@ public interface ApplicationComponent {
 
     PostExecutionThread postExecutionThread();
 
+    DiskLruCache diskLruCache();
+
+    EntityCache entityCache();
+
 
 
 }
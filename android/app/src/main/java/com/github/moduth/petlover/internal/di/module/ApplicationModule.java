@@ -29,10 +29,13 @@ import android.content.Context;
 
 import com.github.moduth.petlover.PetloverApplication;
 import com.github.moduth.petlover.UIThread;
-import com.github.moduth.petlover.data.executor.JobExecutor;
+import com.github.moduth.petlover.data.cache.DiskLruCache;
+import com.github.moduth.petlover.data.executor.PriorityJobExecutor;
 import com.github.moduth.petlover.domain.executor.PostExecutionThread;
 import com.github.moduth.petlover.domain.executor.ThreadExecutor;
 
+import java.io.File;
+
 import javax.inject.Singleton;
 
 import dagger.Module;
@@ -44,6 +47,9 @@ import dagger.Provides;
 @Module
 public class ApplicationModule {
 
+    private static final String DISK_CACHE_DIR = "api";
+    private static final long DISK_CACHE_SIZE = 10 * 1024 * 1024;
+
     private final PetloverApplication mApplication;
 
     public ApplicationModule(PetloverApplication application) {
@@ -59,7 +65,7 @@ public class ApplicationModule {
 
     @Provides
     @Singleton
-    ThreadExecutor provideThreadExecutor(JobExecutor jobExecutor) {
+    ThreadExecutor provideThreadExecutor(PriorityJobExecutor jobExecutor) {
         return jobExecutor;
     }
 
@@ -69,5 +75,11 @@ public class ApplicationModule {
         return uiThread;
     }
 
+    @Provides
+    @Singleton
+    DiskLruCache provideDiskLruCache(Context context) {
+        return new DiskLruCache(new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_SIZE);
+    }
+
 
 }
@@ -24,11 +24,18 @@
 
 package com.github.moduth.petlover.usersystem;
 
-import com.github.moduth.ext.component.cache.sp.ConfigManager;
+import com.github.moduth.ext.component.cache.sp.CredentialStore;
 import com.github.moduth.ext.utils.StringUtils;
+import com.github.moduth.petlover.data.cache.EntityCache;
+import com.github.moduth.petlover.data.network.HeaderTemplate;
 import com.github.moduth.petlover.data.network.PetloverService;
+import com.github.moduth.petlover.domain.executor.Priority;
+import com.github.moduth.petlover.domain.executor.PriorityThreadExecutor;
+import com.github.moduth.petlover.domain.executor.ThreadExecutor;
 import com.github.moduth.petlover.domain.model.TokenEntity;
 
+import java.util.concurrent.Executor;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -44,60 +51,69 @@ public class UserSystem {
     private String mUserId;
     private String mMobileNumber;
 
+    private final EntityCache mEntityCache;
+    private final Executor mBackgroundExecutor;
 
     @Inject
-    public UserSystem() {
-       
+    public UserSystem(EntityCache entityCache, ThreadExecutor threadExecutor) {
+        mEntityCache = entityCache;
+        mBackgroundExecutor = threadExecutor instanceof PriorityThreadExecutor
+                ? ((PriorityThreadExecutor) threadExecutor).forPriority(Priority.BACKGROUND) : threadExecutor;
     }
+
     public void logout() {
-        setUserId("");
-        setToken("");
+        setAccount("", "");
+        PetloverService.getInstance().clearCookies();
+        // cached entities belong to the account logging out, clearing deletes files so not on this thread
+        mBackgroundExecutor.execute(mEntityCache::clear);
     }
 
-    private void setUserId(String userId) {
-        if (StringUtils.equal(userId, mUserId)) {
-            return;
+    /**
+     * Updates user id and token together, both encrypted by {@link CredentialStore} in one write.
+     */
+    private void setAccount(String userId, String token) {
+        CredentialStore.Editor editor = CredentialStore.edit();
+        boolean changed = false;
+        if (!StringUtils.equal(userId, mUserId)) {
+            mUserId = userId;
+            editor.putString(KEY_USER_ID, userId);
+            changed = true;
         }
-        ConfigManager.putString(KEY_USER_ID, userId, ConfigManager.KEY_ACCOUNT);
-        mUserId = userId;
-    }
-
-    private void setToken(String token) {
-        if (StringUtils.equal(token, mToken)) {
-            return;
+        if (!StringUtils.equal(token, mToken)) {
+            mToken = token;
+            HeaderTemplate.setToken(token);
+            editor.putString(KEY_TOKEN, token);
+            changed = true;
+        }
+        if (changed) {
+            editor.apply();
         }
-        mToken = token;
-        PetloverService.token = token;
-        ConfigManager.putString(KEY_TOKEN, token, ConfigManager.KEY_ACCOUNT);
     }
 
     public String getUserId() {
         if (StringUtils.isEmpty(mUserId)) {
-            String userId = ConfigManager.getString(KEY_USER_ID, "", ConfigManager.KEY_ACCOUNT);
-            setUserId(userId);
+            mUserId = CredentialStore.getString(KEY_USER_ID, "");
         }
         return mUserId;
     }
 
     public String getToken() {
         if (StringUtils.isEmpty(mToken)) {
-            String token = ConfigManager.getString(KEY_TOKEN, "", ConfigManager.KEY_ACCOUNT);
-            String userId = ConfigManager.getString(KEY_USER_ID, "", ConfigManager.KEY_ACCOUNT);
-            setTokenWrapper(new TokenEntity(userId, token));
+            mToken = CredentialStore.getString(KEY_TOKEN, "");
+            HeaderTemplate.setToken(mToken);
         }
         return mToken;
     }
 
     public void setTokenWrapper(TokenEntity token) {
         if (token != null) {
-            setUserId(token.getUid());
-            setToken(token.getToken());
+            setAccount(token.getUid(), token.getToken());
         }
     }
 
     public String getMobileNumber() {
         if (StringUtils.isEmpty(mMobileNumber)) {
-            String mobile = ConfigManager.getString(KEY_MOBILE, "", ConfigManager.KEY_ACCOUNT);
+            String mobile = CredentialStore.getString(KEY_MOBILE, "");
             setMobileNumber(mobile);
         }
         return mMobileNumber;
@@ -108,6 +124,6 @@ public class UserSystem {
             return;
         }
         mMobileNumber = mobileNumber;
-        ConfigManager.putString(KEY_MOBILE, mMobileNumber, ConfigManager.KEY_ACCOUNT);
+        CredentialStore.putString(KEY_MOBILE, mMobileNumber);
     }
 }
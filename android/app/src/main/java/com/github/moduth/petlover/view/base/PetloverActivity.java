@@ -31,6 +31,8 @@ import android.view.Window;
 
 import com.github.moduth.petlover.PetloverApplication;
 import com.github.moduth.petlover.R;
+import com.github.moduth.petlover.domain.interactor.UseCase;
+import com.github.moduth.petlover.domain.interactor.UseCaseBinder;
 import com.github.moduth.petlover.data.exception.ResponseException;
 import com.github.moduth.petlover.domain.exception.ErrorBundle;
 import com.github.moduth.ext.utils.StringUtils;
@@ -99,6 +101,20 @@ public abstract class PetloverActivity extends BaseActivity implements ToolbarHe
     }
 
 
+    // ============= use case related =================
+
+    private final UseCaseBinder mUseCaseBinder = new UseCaseBinder();
+
+    /**
+     * Bind a {@link UseCase} to the lifecycle of this activity, it will be un-subscribed in onDestroy.
+     *
+     * @param useCase use case to bind
+     * @return the same use case
+     */
+    protected <U extends UseCase<?>> U bindUseCase(U useCase) {
+        return mUseCaseBinder.bind(useCase);
+    }
+
     // ============= toolbar related =================
 
     protected ToolbarHelper mToolbarHelper;
@@ -176,6 +192,7 @@ public abstract class PetloverActivity extends BaseActivity implements ToolbarHe
 
     @Override
     protected void onDestroy() {
+        mUseCaseBinder.unsubscribeAll();
         super.onDestroy();
 //        MrApplication.getInstance().refWatcher.watch(this);
     }
@@ -32,6 +32,8 @@ import android.view.View;
 
 import com.github.moduth.ext.component.logger.Logger;
 import com.github.moduth.petlover.R;
+import com.github.moduth.petlover.domain.interactor.UseCase;
+import com.github.moduth.petlover.domain.interactor.UseCaseBinder;
 import com.github.moduth.petlover.internal.di.components.ApplicationComponent;
 import com.github.moduth.petlover.internal.di.module.ActivityModule;
 import com.github.moduth.petlover.usersystem.UserSystem;
@@ -115,6 +117,20 @@ public abstract class PetloverFragment extends BaseFragment implements ToolbarHe
         return ((PetloverActivity) getActivity()).getActivityModule();
     }
 
+    // ============= use case related =================
+
+    private final UseCaseBinder mUseCaseBinder = new UseCaseBinder();
+
+    /**
+     * Bind a {@link UseCase} to the lifecycle of this fragment, it will be un-subscribed in onDestroy.
+     *
+     * @param useCase use case to bind
+     * @return the same use case
+     */
+    protected <U extends UseCase<?>> U bindUseCase(U useCase) {
+        return mUseCaseBinder.bind(useCase);
+    }
+
     // ============= toolbar related =================
 
     protected ToolbarHelper mToolbarHelper;
@@ -131,6 +147,7 @@ public abstract class PetloverFragment extends BaseFragment implements ToolbarHe
 
     @Override
     public void onDestroy() {
+        mUseCaseBinder.unsubscribeAll();
         super.onDestroy();
 //        MrApplication.getInstance().refWatcher.watch(this);
     }
@@ -0,0 +1,468 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.cache;
+
+import com.github.moduth.ext.utils.CryptoUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 有容量上限、按最近使用淘汰、支持过期时间的磁盘缓存。
+ * <p>
+ * 每个key对应目录下的一个文件，写入先写到临时文件，{@link Editor#commit(long)} 时rename替换，
+ * 读取方不会看到写了一半的内容；已打开的读取流在文件被替换或淘汰后仍可读完旧内容。
+ * 索引（大小、过期时间、访问顺序）记录在追加写的journal中：
+ * <pre>
+ * PUT key length expiresAt
+ * DEL key
+ * READ key
+ * </pre>
+ * 启动时回放journal重建索引，冗余记录过多时重写journal。所有方法线程安全，
+ * 文件内容的读写不持有锁。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public final class DiskLruCache {
+
+    static final String JOURNAL_FILE = "journal";
+    static final String JOURNAL_FILE_TEMP = "journal.tmp";
+
+    private static final String PUT = "PUT";
+    private static final String DEL = "DEL";
+    private static final String READ = "READ";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[a-z0-9_-]{1,120}");
+    private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final class Entry {
+        final String key;
+        long length;
+        // wall clock millis, 0 for never
+        long expiresAt;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now >= expiresAt;
+        }
+    }
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    private final AtomicInteger mTempSequence = new AtomicInteger();
+
+    // access ordered, the eldest entry is evicted first
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(0, 0.75f, true);
+    private long mSize;
+    private Writer mJournalWriter;
+    private int mRedundantOpCount;
+    private boolean mInitialized;
+
+    /**
+     * @param directory used by this cache only
+     * @param maxSize   total bytes of all values, least recently used ones are evicted beyond it
+     */
+    public DiskLruCache(File directory, long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return a valid cache key for any string, such as a url
+     */
+    public static String keyOf(String raw) {
+        return CryptoUtils.MD5.toMD5(raw);
+    }
+
+    /**
+     * Returns a stream of the value, or null if there is none or it expired. The caller must close it.
+     */
+    public InputStream get(String key) throws IOException {
+        checkKey(key);
+        synchronized (this) {
+            initialize();
+            Entry entry = mEntries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                removeEntry(entry);
+                return null;
+            }
+            mRedundantOpCount++;
+            journal(READ + ' ' + key);
+        }
+        try {
+            return new FileInputStream(valueFile(key));
+        } catch (FileNotFoundException e) {
+            // evicted in between
+            return null;
+        }
+    }
+
+    /**
+     * @return the value decoded as UTF-8, or null
+     */
+    public String getString(String key) throws IOException {
+        InputStream in = get(key);
+        if (in == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return wall clock millis when the value of {@code key} expires, 0 if it never does or
+     * there is none
+     */
+    public synchronized long getExpiresAt(String key) throws IOException {
+        checkKey(key);
+        initialize();
+        Entry entry = mEntries.get(key);
+        return entry != null ? entry.expiresAt : 0;
+    }
+
+    /**
+     * Starts writing a new value for {@code key}. Several editors of one key may be open, the
+     * last one committed wins.
+     */
+    public Editor edit(String key) throws IOException {
+        checkKey(key);
+        synchronized (this) {
+            initialize();
+        }
+        File temp = new File(mDirectory, key + '.' + mTempSequence.incrementAndGet() + TEMP_SUFFIX);
+        return new Editor(key, temp);
+    }
+
+    /**
+     * @param ttlMillis time to live, 0 for no expiry
+     */
+    public void putString(String key, String value, long ttlMillis) throws IOException {
+        Editor editor = edit(key);
+        OutputStream out = editor.newOutputStream();
+        try {
+            out.write(value.getBytes(UTF_8));
+        } catch (IOException e) {
+            editor.abort();
+            throw e;
+        } finally {
+            out.close();
+        }
+        editor.commit(ttlMillis);
+    }
+
+    public synchronized boolean remove(String key) throws IOException {
+        checkKey(key);
+        initialize();
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        removeEntry(entry);
+        return true;
+    }
+
+    /**
+     * Removes every value, open streams stay readable.
+     */
+    public synchronized void clear() throws IOException {
+        initialize();
+        for (Entry entry : new ArrayList<>(mEntries.values())) {
+            removeEntry(entry);
+        }
+        rebuildJournal();
+    }
+
+    /**
+     * @return bytes used by all values
+     */
+    public synchronized long size() throws IOException {
+        initialize();
+        return mSize;
+    }
+
+    public long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Writes one value, see {@link DiskLruCache#edit(String)}.
+     */
+    public final class Editor {
+
+        private final String mKey;
+        private final File mTemp;
+        private boolean mDone;
+
+        private Editor(String key, File temp) {
+            mKey = key;
+            mTemp = temp;
+        }
+
+        /**
+         * Stream to the temp file of this editor, it must be closed before {@link #commit(long)}.
+         */
+        public OutputStream newOutputStream() throws IOException {
+            return new FilterOutputStream(new FileOutputStream(mTemp)) {
+                // FilterOutputStream writes arrays byte by byte
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    out.write(buffer, offset, length);
+                }
+            };
+        }
+
+        /**
+         * Publishes the written value atomically.
+         *
+         * @param ttlMillis time to live, 0 for no expiry
+         */
+        public void commit(long ttlMillis) throws IOException {
+            if (mDone) {
+                throw new IllegalStateException("already committed or aborted");
+            }
+            mDone = true;
+            long length = mTemp.length();
+            synchronized (DiskLruCache.this) {
+                if (!mTemp.renameTo(valueFile(mKey))) {
+                    mTemp.delete();
+                    throw new IOException("can't commit " + mKey);
+                }
+                Entry entry = mEntries.get(mKey);
+                if (entry == null) {
+                    entry = new Entry(mKey);
+                    mEntries.put(mKey, entry);
+                } else {
+                    mSize -= entry.length;
+                    mRedundantOpCount++;
+                }
+                entry.length = length;
+                entry.expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0;
+                mSize += length;
+                journal(PUT + ' ' + mKey + ' ' + length + ' ' + entry.expiresAt);
+                trimToSize();
+            }
+        }
+
+        public void abort() {
+            if (!mDone) {
+                mDone = true;
+                mTemp.delete();
+            }
+        }
+    }
+
+    private void initialize() throws IOException {
+        if (mInitialized) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("can't create " + mDirectory);
+        }
+        File journal = new File(mDirectory, JOURNAL_FILE);
+        if (journal.exists()) {
+            readJournal(journal);
+        }
+        deleteOrphans();
+        rebuildJournal();
+        mInitialized = true;
+        trimToSize();
+    }
+
+    private void readJournal(File journal) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length < 2) {
+                    // torn last line
+                    break;
+                }
+                String key = parts[1];
+                if (PUT.equals(parts[0]) && parts.length == 4) {
+                    Entry entry = mEntries.get(key);
+                    if (entry == null) {
+                        entry = new Entry(key);
+                        mEntries.put(key, entry);
+                    } else {
+                        mSize -= entry.length;
+                    }
+                    try {
+                        entry.length = Long.parseLong(parts[2]);
+                        entry.expiresAt = Long.parseLong(parts[3]);
+                    } catch (NumberFormatException e) {
+                        mEntries.remove(key);
+                        break;
+                    }
+                    mSize += entry.length;
+                } else if (DEL.equals(parts[0])) {
+                    Entry entry = mEntries.remove(key);
+                    if (entry != null) {
+                        mSize -= entry.length;
+                    }
+                } else if (READ.equals(parts[0])) {
+                    // touch the access order
+                    mEntries.get(key);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Deletes temp files of killed writers, and drops entries whose file is gone.
+     */
+    private void deleteOrphans() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(TEMP_SUFFIX)
+                        || (!name.equals(JOURNAL_FILE) && !mEntries.containsKey(name))) {
+                    file.delete();
+                }
+            }
+        }
+        for (Iterator<Entry> it = mEntries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (!valueFile(entry.key).isFile()) {
+                mSize -= entry.length;
+                it.remove();
+            }
+        }
+    }
+
+    private void rebuildJournal() throws IOException {
+        if (mJournalWriter != null) {
+            mJournalWriter.close();
+        }
+        File temp = new File(mDirectory, JOURNAL_FILE_TEMP);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF_8));
+        try {
+            // eldest first, so replaying restores the access order
+            for (Entry entry : mEntries.values()) {
+                writer.write(PUT + ' ' + entry.key + ' ' + entry.length + ' ' + entry.expiresAt + '\n');
+            }
+        } finally {
+            writer.close();
+        }
+        File journal = new File(mDirectory, JOURNAL_FILE);
+        if (!temp.renameTo(journal)) {
+            throw new IOException("can't replace " + journal);
+        }
+        mJournalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal, true), UTF_8));
+        mRedundantOpCount = 0;
+    }
+
+    private void journal(String line) throws IOException {
+        mJournalWriter.write(line);
+        mJournalWriter.write('\n');
+        mJournalWriter.flush();
+        if (mRedundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && mRedundantOpCount >= mEntries.size()) {
+            rebuildJournal();
+        }
+    }
+
+    private void removeEntry(Entry entry) throws IOException {
+        valueFile(entry.key).delete();
+        mEntries.remove(entry.key);
+        mSize -= entry.length;
+        mRedundantOpCount++;
+        journal(DEL + ' ' + entry.key);
+    }
+
+    /**
+     * Drops expired entries, then the least recently used ones until the size fits.
+     */
+    private void trimToSize() throws IOException {
+        long now = System.currentTimeMillis();
+        long excess = mSize - mMaxSize;
+        List<Entry> evicted = new ArrayList<>();
+        for (Entry entry : mEntries.values()) {
+            if (excess > 0 || entry.isExpired(now)) {
+                evicted.add(entry);
+                excess -= entry.length;
+            }
+        }
+        for (Entry entry : evicted) {
+            removeEntry(entry);
+        }
+    }
+
+    private File valueFile(String key) {
+        return new File(mDirectory, key);
+    }
+
+    private static void checkKey(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("keys must match [a-z0-9_-]{1,120}: \"" + key + "\"");
+        }
+        // values share the directory with the journal, journal.tmp can't match the pattern
+        if (JOURNAL_FILE.equals(key)) {
+            throw new IllegalArgumentException("\"" + key + "\" is reserved");
+        }
+    }
+}
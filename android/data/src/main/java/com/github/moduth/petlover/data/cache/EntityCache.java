@@ -0,0 +1,217 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.cache;
+
+import com.github.moduth.ext.component.logger.Logger;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * 两级实体缓存：内存中按字节数限制的LRU，之下是 {@link DiskLruCache}。
+ * <p>
+ * 实体以json存盘，内存中同时保留解析后的对象和它的json，命中内存时不需要再解析；
+ * 磁盘命中的实体会被提升到内存。内存大小按json的UTF-16字节数估算，解析后的对象按同样大小计。
+ * 所有方法都会做磁盘I/O，需要在后台线程调用。
+ * <p>
+ * 命中内存时所有调用方拿到的是同一个实体对象，实体必须当作不可变对象使用；
+ * 需要修改时先复制，否则改动会被其它调用方看到，且和磁盘上的json不一致。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+@Singleton
+public class EntityCache {
+
+    private static final String TAG = "EntityCache";
+
+    // 1/32 of the heap, json plus the decoded object
+    private static final int MEMORY_CACHE_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 32,
+            Integer.MAX_VALUE);
+
+    private static final class Entry {
+        final Object value;
+        final String json;
+        // wall clock millis, 0 for never
+        final long expiresAt;
+
+        Entry(Object value, String json, long expiresAt) {
+            this.value = value;
+            this.json = json;
+            this.expiresAt = expiresAt;
+        }
+
+        int size() {
+            return json.length() * 2 * 2;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now >= expiresAt;
+        }
+    }
+
+    // access ordered, the eldest entry is evicted first, guarded by itself
+    private final LinkedHashMap<String, Entry> mMemory = new LinkedHashMap<>(0, 0.75f, true);
+    private final int mMaxMemorySize;
+    private int mMemorySize;
+    private final DiskLruCache mDisk;
+    private final Gson mGson = new GsonBuilder().setDateFormat("yyyy-MM-dd HH:mm:ss").create();
+
+    @Inject
+    public EntityCache(DiskLruCache disk) {
+        this(disk, MEMORY_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxMemorySize estimated bytes of the memory tier, least recently used entities are evicted beyond it
+     */
+    EntityCache(DiskLruCache disk, int maxMemorySize) {
+        mDisk = disk;
+        mMaxMemorySize = maxMemorySize;
+    }
+
+    /**
+     * @param key  any string identifying the entity, such as the request url
+     * @param type type of the entity, use a {@link com.google.gson.reflect.TypeToken} for generics
+     * @return the cached entity, or null if there is none or it expired. A memory hit returns the
+     * instance every other caller gets, don't modify it
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Type type) {
+        Entry entry = memoryGet(key);
+        if (entry != null) {
+            if (!entry.isExpired(System.currentTimeMillis())) {
+                return (T) entry.value;
+            }
+            memoryRemove(key);
+        }
+        String diskKey = DiskLruCache.keyOf(key);
+        try {
+            long expiresAt = mDisk.getExpiresAt(diskKey);
+            String json = mDisk.getString(diskKey);
+            if (json == null) {
+                return null;
+            }
+            T value = mGson.fromJson(json, type);
+            if (value != null) {
+                memoryPut(key, new Entry(value, json, expiresAt));
+            }
+            return value;
+        } catch (IOException e) {
+            Logger.w(TAG, "failed to read " + key, e);
+        } catch (JsonParseException e) {
+            // written by an older version of the entity
+            Logger.w(TAG, "dropping unreadable " + key, e);
+            remove(key);
+        }
+        return null;
+    }
+
+    /**
+     * Stores {@code value} in both tiers.
+     *
+     * @param ttlMillis time to live, 0 for no expiry
+     * @return false if the memory tier already held an equal value, true otherwise
+     */
+    public boolean put(String key, Object value, long ttlMillis) {
+        String json = mGson.toJson(value);
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0;
+        Entry old = memoryPut(key, new Entry(value, json, expiresAt));
+        try {
+            // written even when unchanged, to renew the expiry
+            mDisk.putString(DiskLruCache.keyOf(key), json, ttlMillis);
+        } catch (IOException e) {
+            Logger.w(TAG, "failed to write " + key, e);
+        }
+        return old == null || !old.json.equals(json);
+    }
+
+    public void remove(String key) {
+        memoryRemove(key);
+        try {
+            mDisk.remove(DiskLruCache.keyOf(key));
+        } catch (IOException e) {
+            Logger.w(TAG, "failed to remove " + key, e);
+        }
+    }
+
+    /**
+     * Drops every entity, on logout for example.
+     */
+    public void clear() {
+        synchronized (mMemory) {
+            mMemory.clear();
+            mMemorySize = 0;
+        }
+        try {
+            mDisk.clear();
+        } catch (IOException e) {
+            Logger.w(TAG, "failed to clear", e);
+        }
+    }
+
+    private Entry memoryGet(String key) {
+        synchronized (mMemory) {
+            return mMemory.get(key);
+        }
+    }
+
+    /**
+     * @return the entry previously held for key, even if it was evicted right away
+     */
+    private Entry memoryPut(String key, Entry entry) {
+        synchronized (mMemory) {
+            Entry old = mMemory.put(key, entry);
+            if (old != null) {
+                mMemorySize -= old.size();
+            }
+            mMemorySize += entry.size();
+            Iterator<Map.Entry<String, Entry>> it = mMemory.entrySet().iterator();
+            while (mMemorySize > mMaxMemorySize && it.hasNext()) {
+                mMemorySize -= it.next().getValue().size();
+                it.remove();
+            }
+            return old;
+        }
+    }
+
+    private void memoryRemove(String key) {
+        synchronized (mMemory) {
+            Entry old = mMemory.remove(key);
+            if (old != null) {
+                mMemorySize -= old.size();
+            }
+        }
+    }
+}
@@ -27,12 +27,15 @@ package com.github.moduth.petlover.data.cache;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -43,30 +46,36 @@ import javax.inject.Singleton;
 @Singleton
 public class FileManager {
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     @Inject
     public FileManager() {
     }
 
     /**
-     * Writes a file to Disk.
+     * Writes a file to Disk, replacing any previous content.
+     * The content goes to a temp file first and is renamed into place, so readers never see a
+     * partial file. For cached data with a size budget or expiry use {@link DiskLruCache}.
      * This is an I/O operation and this method executes in the main thread, so it is recommended to
      * perform this operation using another thread.
      *
      * @param file The file to write to Disk.
      */
     public void writeToFile(File file, String fileContent) {
-        if (!file.exists()) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
             try {
-                FileWriter writer = new FileWriter(file);
-                writer.write(fileContent);
-                writer.close();
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
+                out.write(fileContent.getBytes(UTF_8));
             } finally {
-
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("can't replace " + file);
             }
+        } catch (IOException e) {
+            temp.delete();
+            e.printStackTrace();
         }
     }
 
@@ -76,28 +85,28 @@ public class FileManager {
      * perform the operation using another thread.
      *
      * @param file The file to read from.
-     * @return A string with the content of the file.
+     * @return A string with the content of the file, empty if it can't be read.
      */
     public String readFileContent(File file) {
-        StringBuilder fileContentBuilder = new StringBuilder();
-        if (file.exists()) {
-            String stringLine;
+        try {
+            InputStream in = new FileInputStream(file);
             try {
-                FileReader fileReader = new FileReader(file);
-                BufferedReader bufferedReader = new BufferedReader(fileReader);
-                while ((stringLine = bufferedReader.readLine()) != null) {
-                    fileContentBuilder.append(stringLine + "\n");
+                ByteArrayOutputStream content = new ByteArrayOutputStream((int) file.length());
+                byte[] buffer = new byte[8 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    content.write(buffer, 0, n);
                 }
-                bufferedReader.close();
-                fileReader.close();
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
+                return new String(content.toByteArray(), UTF_8);
+            } finally {
+                in.close();
             }
+        } catch (FileNotFoundException e) {
+            return "";
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "";
         }
-
-        return fileContentBuilder.toString();
     }
 
     /**
@@ -118,8 +127,9 @@ public class FileManager {
      * @param directory The directory which its content will be deleted.
      */
     public void clearDirectory(File directory) {
-        if (directory.exists()) {
-            for (File file : directory.listFiles()) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
                 file.delete();
             }
         }
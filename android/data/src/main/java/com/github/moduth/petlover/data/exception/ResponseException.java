@@ -27,13 +27,17 @@ package com.github.moduth.petlover.data.exception;
 import com.github.moduth.petlover.domain.model.PlResponse;
 import com.github.moduth.petlover.domain.model.TokenEntity;
 
+import java.io.IOException;
+
 /**
  * Say like response's is not successful with an error code.
+ * <p>
+ * 继承 {@link IOException}，以便在 Retrofit Converter 解析过程中直接抛出。
  *
  * @author markzhai on 16/2/28
  * @version 1.0.0
  */
-public class ResponseException extends Exception {
+public class ResponseException extends IOException {
 
     private static final String TAG = "ResponseException";
 
@@ -55,6 +59,10 @@ public class ResponseException extends Exception {
         mStatusCode = response.getStatusCode();
 
         if (mStatusCode == ERROR_CODE_NEED_PERFECT_PROFILE) {
+            if (response instanceof TokenEntity) {
+                mToken = (TokenEntity) response;
+                return;
+            }
             try {
                 mToken = (TokenEntity) response.getData();
             } catch (ClassCastException e) {
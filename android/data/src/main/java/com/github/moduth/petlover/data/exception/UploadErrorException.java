@@ -25,8 +25,26 @@
 package com.github.moduth.petlover.data.exception;
 
 /**
+ * 上传失败，重试次数用尽后抛出
+ *
  * @author markzhai on 16/7/6
  * @version 1.3.0
  */
 public class UploadErrorException extends Exception {
+
+    public UploadErrorException() {
+        super();
+    }
+
+    public UploadErrorException(final String message) {
+        super(message);
+    }
+
+    public UploadErrorException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public UploadErrorException(final Throwable cause) {
+        super(cause);
+    }
 }
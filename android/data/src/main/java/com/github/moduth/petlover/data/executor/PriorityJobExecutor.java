@@ -0,0 +1,160 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.executor;
+
+import android.os.Process;
+
+import com.github.moduth.ext.component.logger.Logger;
+import com.github.moduth.ext.utils.NetWorkUtils;
+import com.github.moduth.ext.utils.NetworkMonitor;
+import com.github.moduth.petlover.domain.executor.Priority;
+import com.github.moduth.petlover.domain.executor.PriorityThreadExecutor;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * 按优先级分道执行的 {@link PriorityThreadExecutor}。
+ * <p>
+ * 交互、预加载、后台三个 lane 各自拥有独立的线程池，低优先级任务不会排在交互任务前面。
+ * 每个 lane 的线程数随 {@link NetworkMonitor} 报告的网络类型调整：WIFI 下放开预加载和后台，
+ * 移动网络下收紧，保证前台请求的延迟。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+@Singleton
+public class PriorityJobExecutor implements PriorityThreadExecutor, NetworkMonitor.OnNetworkChangedListener {
+
+    private static final String TAG = "PriorityJobExecutor";
+
+    // Sets the amount of time an idle thread waits before terminating
+    private static final int KEEP_ALIVE_TIME = 10;
+
+    // Sets the Time Unit to seconds
+    private static final TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.SECONDS;
+
+    // {INTERACTIVE, PREFETCH, BACKGROUND}
+    private static final int[] BUDGET_WIFI = {4, 3, 2};
+    private static final int[] BUDGET_4G = {4, 2, 1};
+    private static final int[] BUDGET_SLOW_MOBILE = {3, 1, 1};
+    private static final int[] BUDGET_NONE = {2, 1, 1};
+
+    private final Map<Priority, ThreadPoolExecutor> mLanes = new EnumMap<>(Priority.class);
+
+    @Inject
+    public PriorityJobExecutor() {
+        int[] budget = getBudget(NetworkMonitor.getNetworkType());
+        mLanes.put(Priority.INTERACTIVE, createLane(Priority.INTERACTIVE,
+                budget[0], Process.THREAD_PRIORITY_DEFAULT));
+        mLanes.put(Priority.PREFETCH, createLane(Priority.PREFETCH,
+                budget[1], Process.THREAD_PRIORITY_BACKGROUND));
+        mLanes.put(Priority.BACKGROUND, createLane(Priority.BACKGROUND,
+                budget[2], Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE));
+        NetworkMonitor.addListener(this);
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        forPriority(Priority.INTERACTIVE).execute(runnable);
+    }
+
+    @Override
+    public Executor forPriority(Priority priority) {
+        return mLanes.get(priority);
+    }
+
+    @Override
+    public void onNetworkChanged(int networkType) {
+        int[] budget = getBudget(networkType);
+        resize(mLanes.get(Priority.INTERACTIVE), budget[0]);
+        resize(mLanes.get(Priority.PREFETCH), budget[1]);
+        resize(mLanes.get(Priority.BACKGROUND), budget[2]);
+        Logger.i(TAG, "lane budget changed to " + budget[0] + "/" + budget[1] + "/" + budget[2]
+                + " for " + NetworkMonitor.getNetworkName(networkType));
+    }
+
+    private static int[] getBudget(int networkType) {
+        switch (networkType) {
+            case NetWorkUtils.NETWORK_TYPE_WIFI:
+            case NetWorkUtils.NETWORK_TYPE_UNKNOWN:
+                return BUDGET_WIFI;
+            case NetWorkUtils.NETWORK_TYPE_4G:
+                return BUDGET_4G;
+            case NetWorkUtils.NETWORK_TYPE_NONE:
+                return BUDGET_NONE;
+            default:
+                return BUDGET_SLOW_MOBILE;
+        }
+    }
+
+    private static ThreadPoolExecutor createLane(Priority priority, int size, int threadPriority) {
+        // core == max, the queue is unbounded so the pool would never grow past core anyway.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size,
+                KEEP_ALIVE_TIME, KEEP_ALIVE_TIME_UNIT, new LinkedBlockingQueue<>(),
+                new LaneThreadFactory(priority, threadPriority));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void resize(ThreadPoolExecutor executor, int size) {
+        // keep core <= max during the change
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String mThreadName;
+        private final int mThreadPriority;
+        private final AtomicInteger mCounter = new AtomicInteger();
+
+        LaneThreadFactory(Priority priority, int threadPriority) {
+            mThreadName = "android_" + priority.name().toLowerCase() + "_";
+            mThreadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(mThreadPriority);
+                runnable.run();
+            }, mThreadName + mCounter.getAndIncrement());
+        }
+    }
+}
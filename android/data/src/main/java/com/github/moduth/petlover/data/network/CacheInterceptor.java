@@ -0,0 +1,146 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.ext.Ext;
+import com.github.moduth.ext.utils.NetWorkUtils;
+import com.github.moduth.ext.utils.StringUtils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 响应缓存拦截器，需要同时以 application interceptor 和 network interceptor 注册。
+ * <p>
+ * 接口可以通过 Retrofit 的 {@code @Headers} 指定缓存策略，例如：
+ * <pre>
+ * &#64;Headers(CacheInterceptor.POLICY_REVALIDATE)
+ * &#64;GET("feed/list")
+ * Observable&lt;FeedResponse&gt; getFeeds(&#64;Query("page") int page);
+ * </pre>
+ * 未指定策略的接口完全遵循服务端返回的缓存头。ETag / Last-Modified 的条件请求（304）由
+ * {@link okhttp3.Cache} 自动完成，断网时会直接使用本地的过期缓存。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class CacheInterceptor implements Interceptor {
+
+    private static final String TAG = "CacheInterceptor";
+
+    /**
+     * 客户端内部使用的缓存策略头，发出请求前会被移除
+     */
+    public static final String HEADER_CACHE_POLICY = "PL-CACHE-POLICY";
+
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_PRAGMA = "Pragma";
+
+    /**
+     * 每次都向服务端做条件请求，内容未变化时服务端返回 304。
+     * 用 max-age=0 而不是 no-cache：OkHttp 不会把 no-cache 的响应当作过期缓存返回，断网时就没有兜底了
+     */
+    public static final String POLICY_REVALIDATE = HEADER_CACHE_POLICY + ": max-age=0";
+
+    /**
+     * 1 分钟内直接使用本地缓存，适用于列表等变化频繁的接口
+     */
+    public static final String POLICY_SHORT = HEADER_CACHE_POLICY + ": max-age=60";
+
+    /**
+     * 1 小时内直接使用本地缓存，适用于配置等基本不变的接口
+     */
+    public static final String POLICY_LONG = HEADER_CACHE_POLICY + ": max-age=3600";
+
+    /**
+     * 不缓存，适用于登录等敏感接口
+     */
+    public static final String POLICY_NO_STORE = HEADER_CACHE_POLICY + ": no-store";
+
+    // 断网时最多允许使用多久之前的缓存
+    private static final int OFFLINE_MAX_STALE_DAYS = 7;
+
+    private static final CacheControl OFFLINE_CACHE_CONTROL = new CacheControl.Builder()
+            .onlyIfCached()
+            .maxStale(OFFLINE_MAX_STALE_DAYS, TimeUnit.DAYS)
+            .build();
+
+    private final boolean mNetworkInterceptor;
+
+    /**
+     * @param networkInterceptor true 表示注册在 network interceptor 中，负责改写响应缓存头；
+     *                           false 表示注册在 application interceptor 中，负责断网时读取缓存
+     */
+    public CacheInterceptor(boolean networkInterceptor) {
+        mNetworkInterceptor = networkInterceptor;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        return mNetworkInterceptor ? interceptNetwork(chain) : interceptApplication(chain);
+    }
+
+    private Response interceptApplication(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!NetWorkUtils.isNetworkConnected(Ext.getContext())
+                && !isNoStore(request.header(HEADER_CACHE_POLICY))) {
+            request = request.newBuilder()
+                    .cacheControl(OFFLINE_CACHE_CONTROL)
+                    .build();
+        }
+        return chain.proceed(request);
+    }
+
+    private Response interceptNetwork(Chain chain) throws IOException {
+        Request original = chain.request();
+        String policy = original.header(HEADER_CACHE_POLICY);
+        if (StringUtils.isEmpty(policy)) {
+            return chain.proceed(original);
+        }
+
+        Request request = original.newBuilder()
+                .removeHeader(HEADER_CACHE_POLICY)
+                .build();
+        Response response = chain.proceed(request);
+        // 304 也需要改写，否则合并到缓存中的会是服务端原始的缓存头
+        if (!response.isSuccessful() && response.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader(HEADER_PRAGMA)
+                .header(HEADER_CACHE_CONTROL, policy)
+                .build();
+    }
+
+    private static boolean isNoStore(String policy) {
+        return policy != null && policy.contains("no-store");
+    }
+}
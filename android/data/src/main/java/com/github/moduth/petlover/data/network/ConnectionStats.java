@@ -0,0 +1,110 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * 统计连接池命中情况的 network interceptor。
+ * <p>
+ * 第一次见到的 {@link Connection} 记为 miss（新建连接，HTTPS 下意味着一次 TLS 握手），
+ * 之后复用同一连接的请求记为 hit。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class ConnectionStats implements Interceptor {
+
+    private final Map<Connection, Boolean> mSeenConnections = new WeakHashMap<>();
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mHandshakeCount = new AtomicLong();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Connection connection = chain.connection();
+        if (connection != null) {
+            boolean reused;
+            synchronized (mSeenConnections) {
+                reused = mSeenConnections.put(connection, Boolean.TRUE) != null;
+            }
+            if (reused) {
+                mHitCount.incrementAndGet();
+            } else {
+                mMissCount.incrementAndGet();
+                if (connection.handshake() != null) {
+                    mHandshakeCount.incrementAndGet();
+                }
+            }
+        }
+        return chain.proceed(chain.request());
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * @return 新建连接时发生的 TLS 握手次数
+     */
+    public long getHandshakeCount() {
+        return mHandshakeCount.get();
+    }
+
+    /**
+     * @return 连接复用率，没有请求时为 0
+     */
+    public float getHitRate() {
+        long hit = mHitCount.get();
+        long total = hit + mMissCount.get();
+        return total == 0 ? 0f : (float) hit / total;
+    }
+
+    public void reset() {
+        mHitCount.set(0);
+        mMissCount.set(0);
+        mHandshakeCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionStats{hit=" + getHitCount()
+                + ", miss=" + getMissCount()
+                + ", handshake=" + getHandshakeCount()
+                + ", hitRate=" + getHitRate() + "}";
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.petlover.data.exception.NetworkConnectionException;
+import com.github.moduth.petlover.data.exception.ResponseException;
+import com.github.moduth.petlover.domain.interactor.RetryPolicy;
+
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import retrofit2.adapter.rxjava.HttpException;
+
+/**
+ * 默认的重试策略。
+ * <p>
+ * 网络不可用、连接失败、超时以及服务端的临时错误（HTTP 408/429/5xx、status_no -999）按指数退避重试，
+ * 并叠加随机抖动，避免大量客户端同时重试；登录失效、需要完善资料等业务状态码以及其他错误不重试。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+
+    private static final int ERROR_CODE_UNKNOWN = -999;
+
+    private final int mMaxRetries;
+    private final long mBaseDelayMs;
+    private final long mMaxDelayMs;
+    private final Random mRandom = new Random();
+
+    public DefaultRetryPolicy() {
+        this(3, 500, 8000);
+    }
+
+    /**
+     * @param maxRetries  最大重试次数
+     * @param baseDelayMs 第一次重试的基准延迟，之后每次翻倍
+     * @param maxDelayMs  单次延迟上限
+     */
+    public DefaultRetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs) {
+        mMaxRetries = maxRetries;
+        mBaseDelayMs = baseDelayMs;
+        mMaxDelayMs = maxDelayMs;
+    }
+
+    @Override
+    public long getRetryDelay(Throwable error, int attempt) {
+        if (attempt > mMaxRetries || !isTransient(error)) {
+            return NO_RETRY;
+        }
+        long delay = Math.min(mMaxDelayMs, mBaseDelayMs << Math.min(attempt - 1, 16));
+        // equal jitter: [delay / 2, delay)
+        long half = delay / 2;
+        synchronized (mRandom) {
+            return half + (long) (mRandom.nextDouble() * half);
+        }
+    }
+
+    /**
+     * @return 是否为重试可能成功的临时错误
+     */
+    public static boolean isTransient(Throwable error) {
+        // ResponseException 也是 IOException，必须先判断
+        if (error instanceof ResponseException) {
+            int code = ((ResponseException) error).getStatusCode();
+            return code == ERROR_CODE_UNKNOWN;
+        }
+        if (error instanceof HttpException) {
+            int code = ((HttpException) error).code();
+            return code == 408 || code == 429 || code >= 500;
+        }
+        return error instanceof NetworkConnectionException
+                || error instanceof InterruptedIOException // SocketTimeoutException included
+                || error instanceof SocketException // ConnectException included
+                || error instanceof UnknownHostException;
+    }
+}
@@ -29,6 +29,7 @@ import com.github.moduth.ext.utils.ViewUtils;
 
 import java.io.IOException;
 
+import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -71,17 +72,20 @@ public class HeadInterceptor implements Interceptor {
     public Response intercept(Chain chain) throws IOException {
         Request original = chain.request();
         Request request = original.newBuilder()
-                .method(original.method(), original.body())
-                .addHeader(HEADER_APP_ID, HEADER_APP_ID_VALUE)
-                .addHeader(HEADER_APP_VER, Ext.g().getVersionName())
-                .addHeader(HEADER_APP_BUILD_NO, Ext.g().getBuilderNumber())
-                .addHeader(HEADER_VUSER, PetloverService.token)
-                .addHeader(HEADER_SCREEN_SCALE, String.valueOf(ViewUtils.getDensity())) //缩放比 1/2/3
-                .addHeader(HEADER_SCREEN_WIDTH, HEADER_SCREEN_WIDTH_VALUE)
-                .addHeader(HEADER_SCREEN_HEIGHT, HEADER_SCREEN_HEIGHT_VALUE)
-                .header(HEADER_USER_AGENT, Ext.g().getDeviceInfo())
+                .headers(merge(original.headers(), HeaderTemplate.get()))
                 .build();
 //        Logger.d(TAG, String.format("Sending request %s", toGetUrl(request)));
         return chain.proceed(request);
     }
+
+    private static Headers merge(Headers original, Headers common) {
+        if (original.size() == 0) {
+            return common;
+        }
+        Headers.Builder builder = original.newBuilder();
+        for (int i = 0, size = common.size(); i < size; i++) {
+            builder.set(common.name(i), common.value(i));
+        }
+        return builder.build();
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.ext.Ext;
+import com.github.moduth.ext.component.cache.sp.CredentialStore;
+import com.github.moduth.ext.utils.NetworkMonitor;
+import com.github.moduth.ext.utils.ViewUtils;
+
+import okhttp3.Headers;
+
+/**
+ * 预先生成的公共请求头。
+ * <p>
+ * 版本号、屏幕信息、设备信息等在进程内不变的值只计算一次；用户凭证和网络类型变化时
+ * 重新生成一份新的 {@link Headers} 并整体替换，{@link HeadInterceptor} 每次请求只需读取当前的一份。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public final class HeaderTemplate {
+
+    private static final String KEY_TOKEN = "token";
+
+    private static final Headers STATIC_HEADERS = new Headers.Builder()
+            .add(HeadInterceptor.HEADER_APP_ID, HeadInterceptor.HEADER_APP_ID_VALUE)
+            .add(HeadInterceptor.HEADER_APP_VER, Ext.g().getVersionName())
+            .add(HeadInterceptor.HEADER_APP_BUILD_NO, Ext.g().getBuilderNumber())
+            .add(HeadInterceptor.HEADER_SCREEN_SCALE, String.valueOf(ViewUtils.getDensity())) //缩放比 1/2/3
+            .add(HeadInterceptor.HEADER_SCREEN_WIDTH, HeadInterceptor.HEADER_SCREEN_WIDTH_VALUE)
+            .add(HeadInterceptor.HEADER_SCREEN_HEIGHT, HeadInterceptor.HEADER_SCREEN_HEIGHT_VALUE)
+            .add(HeadInterceptor.HEADER_USER_AGENT, Ext.g().getDeviceInfo())
+            .build();
+
+    private static volatile String sToken;
+    private static volatile String sNetwork;
+    private static volatile Headers sHeaders;
+
+    static {
+        // decrypted once here, requests only read the prebuilt headers
+        sToken = nonNull(CredentialStore.getString(KEY_TOKEN, ""));
+        sNetwork = NetworkMonitor.getNetworkName(NetworkMonitor.getNetworkType());
+        sHeaders = build(sToken, sNetwork);
+        NetworkMonitor.addListener(networkType -> {
+            synchronized (HeaderTemplate.class) {
+                sNetwork = NetworkMonitor.getNetworkName(networkType);
+                sHeaders = build(sToken, sNetwork);
+            }
+        });
+    }
+
+    private HeaderTemplate() {
+        // static usage.
+    }
+
+    /**
+     * @return 当前完整的公共请求头
+     */
+    public static Headers get() {
+        return sHeaders;
+    }
+
+    /**
+     * @return 当前用户凭证
+     */
+    public static String getToken() {
+        return sToken;
+    }
+
+    /**
+     * 登录、退出登录时更新用户凭证
+     */
+    public static void setToken(String token) {
+        synchronized (HeaderTemplate.class) {
+            sToken = nonNull(token);
+            sHeaders = build(sToken, sNetwork);
+        }
+    }
+
+    private static Headers build(String token, String network) {
+        return STATIC_HEADERS.newBuilder()
+                .add(HeadInterceptor.HEADER_VUSER, token)
+                .add(HeadInterceptor.HEADER_NETWORK, network)
+                .build();
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+}
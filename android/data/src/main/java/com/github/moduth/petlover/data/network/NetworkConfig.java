@@ -0,0 +1,164 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NetworkEngine} 的配置项，通过 {@link Builder} 创建。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class NetworkConfig {
+
+    private final int mMaxRequests;
+    private final int mMaxRequestsPerHost;
+    private final int mMaxIdleConnections;
+    private final long mKeepAliveDurationMs;
+    private final boolean mHttp2Enabled;
+    private final long mConnectTimeoutMs;
+    private final long mReadTimeoutMs;
+    private final long mUploadTimeoutMs;
+
+    private NetworkConfig(Builder builder) {
+        mMaxRequests = builder.mMaxRequests;
+        mMaxRequestsPerHost = builder.mMaxRequestsPerHost;
+        mMaxIdleConnections = builder.mMaxIdleConnections;
+        mKeepAliveDurationMs = builder.mKeepAliveDurationMs;
+        mHttp2Enabled = builder.mHttp2Enabled;
+        mConnectTimeoutMs = builder.mConnectTimeoutMs;
+        mReadTimeoutMs = builder.mReadTimeoutMs;
+        mUploadTimeoutMs = builder.mUploadTimeoutMs;
+    }
+
+    public int getMaxRequests() {
+        return mMaxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return mMaxRequestsPerHost;
+    }
+
+    public int getMaxIdleConnections() {
+        return mMaxIdleConnections;
+    }
+
+    public long getKeepAliveDurationMs() {
+        return mKeepAliveDurationMs;
+    }
+
+    public boolean isHttp2Enabled() {
+        return mHttp2Enabled;
+    }
+
+    public long getConnectTimeoutMs() {
+        return mConnectTimeoutMs;
+    }
+
+    public long getReadTimeoutMs() {
+        return mReadTimeoutMs;
+    }
+
+    public long getUploadTimeoutMs() {
+        return mUploadTimeoutMs;
+    }
+
+    public static class Builder {
+        private int mMaxRequests = 64;
+        private int mMaxRequestsPerHost = 8;
+        private int mMaxIdleConnections = 5;
+        private long mKeepAliveDurationMs = TimeUnit.MINUTES.toMillis(5);
+        private boolean mHttp2Enabled = true;
+        private long mConnectTimeoutMs = TimeUnit.SECONDS.toMillis(5);
+        private long mReadTimeoutMs = TimeUnit.SECONDS.toMillis(10);
+        private long mUploadTimeoutMs = TimeUnit.SECONDS.toMillis(60);
+
+        /**
+         * @param maxRequests 同时执行的最大请求数
+         */
+        public Builder maxRequests(int maxRequests) {
+            mMaxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerHost 同一 host 同时执行的最大请求数
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            mMaxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * @param maxIdleConnections 连接池中保留的最大空闲连接数
+         */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            mMaxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * @param duration 空闲连接保活时长
+         */
+        public Builder keepAliveDuration(long duration, TimeUnit unit) {
+            mKeepAliveDurationMs = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * @param http2Enabled 是否允许 HTTP/2 多路复用，关闭后只使用 HTTP/1.1
+         */
+        public Builder http2Enabled(boolean http2Enabled) {
+            mHttp2Enabled = http2Enabled;
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            mConnectTimeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            mReadTimeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout 上传请求的读写超时，大文件上传需要比普通接口长
+         */
+        public Builder uploadTimeout(long timeout, TimeUnit unit) {
+            mUploadTimeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        public NetworkConfig build() {
+            if (mMaxRequests < 1 || mMaxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("max requests must be positive");
+            }
+            return new NetworkConfig(this);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.ext.component.logger.Logger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * 网络引擎，所有 OkHttpClient 共享同一个 {@link Dispatcher} 与 {@link ConnectionPool}。
+ * <p>
+ * 接口、图片、上传等不同用途的 client 都通过 {@link OkHttpClient#newBuilder()} 从同一个基础 client
+ * 派生，从而复用连接与线程，减少冷启动时的 TCP/TLS 握手。
+ * 需要自定义配置时，在 Application 初始化时调用 {@link #init(NetworkConfig)}，且须早于第一次网络请求。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class NetworkEngine {
+
+    private static final String TAG = "NetworkEngine";
+
+    private static volatile NetworkConfig sConfig;
+    private static volatile NetworkEngine sInstance;
+
+    private final NetworkConfig mConfig;
+    private final ConnectionPool mConnectionPool;
+    private final Dispatcher mDispatcher;
+    private final ConnectionStats mConnectionStats;
+    private final OkHttpClient mBaseClient;
+
+    private volatile OkHttpClient mUploadClient;
+
+    public static void init(NetworkConfig config) {
+        if (sInstance != null) {
+            Logger.w(TAG, "init after network engine created, config ignored");
+            return;
+        }
+        sConfig = config;
+    }
+
+    public static NetworkEngine getInstance() {
+        if (sInstance == null) {
+            synchronized (NetworkEngine.class) {
+                if (sInstance == null) {
+                    NetworkConfig config = sConfig != null ? sConfig : new NetworkConfig.Builder().build();
+                    sInstance = new NetworkEngine(config);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private NetworkEngine(NetworkConfig config) {
+        mConfig = config;
+        mConnectionPool = new ConnectionPool(config.getMaxIdleConnections(),
+                config.getKeepAliveDurationMs(), TimeUnit.MILLISECONDS);
+        mDispatcher = new Dispatcher();
+        mDispatcher.setMaxRequests(config.getMaxRequests());
+        mDispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+        mConnectionStats = new ConnectionStats();
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(mConnectionPool)
+                .dispatcher(mDispatcher)
+                .connectTimeout(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .addNetworkInterceptor(mConnectionStats);
+        if (config.isHttp2Enabled()) {
+            builder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        mBaseClient = builder.build();
+    }
+
+    /**
+     * @return 基于共享连接池的 builder，调用方可以继续添加自己的拦截器、缓存等
+     */
+    public OkHttpClient.Builder newBuilder() {
+        return mBaseClient.newBuilder();
+    }
+
+    /**
+     * @return 图片加载使用的 client，不带业务头与接口缓存
+     */
+    public OkHttpClient getImageClient() {
+        return mBaseClient;
+    }
+
+    /**
+     * @return 上传使用的 client，读写超时更长
+     */
+    public OkHttpClient getUploadClient() {
+        if (mUploadClient == null) {
+            synchronized (this) {
+                if (mUploadClient == null) {
+                    mUploadClient = newBuilder()
+                            .readTimeout(mConfig.getUploadTimeoutMs(), TimeUnit.MILLISECONDS)
+                            .writeTimeout(mConfig.getUploadTimeoutMs(), TimeUnit.MILLISECONDS)
+                            .addInterceptor(new HeadInterceptor())
+                            .build();
+                }
+            }
+        }
+        return mUploadClient;
+    }
+
+    public NetworkConfig getConfig() {
+        return mConfig;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return mConnectionPool;
+    }
+
+    public Dispatcher getDispatcher() {
+        return mDispatcher;
+    }
+
+    public ConnectionStats getConnectionStats() {
+        return mConnectionStats;
+    }
+
+    /**
+     * 输出连接池与连接复用统计，用于线上调优
+     */
+    public void dumpStats() {
+        Logger.i(TAG, mConnectionStats + ", pool{connections=" + mConnectionPool.connectionCount()
+                + ", idle=" + mConnectionPool.idleConnectionCount()
+                + "}, dispatcher{running=" + mDispatcher.runningCallsCount()
+                + ", queued=" + mDispatcher.queuedCallsCount() + "}");
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.github.moduth.ext.component.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+/**
+ * 线程安全、持久化的 CookieJar。
+ * <p>
+ * 内存中以 cookie 的 domain 为索引，请求时只查找请求 host 及其上级域名对应的桶，
+ * 不需要遍历全部 cookie；过期的 cookie 在读取和写入时顺带清除。
+ * 所有 cookie（包括不带过期时间的会话 cookie）同时写入 SharedPreferences，进程重启后首次使用时加载，
+ * 登录态因此得以保留。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class PersistentCookieJar implements CookieJar {
+
+    private static final String TAG = "PersistentCookieJar";
+
+    private static final String PREFERENCES_NAME = "PetloverCookies";
+    private static final char KEY_SEPARATOR = '|';
+
+    private final Context mContext;
+
+    // domain -> (domain|path|name -> cookie)
+    private final ConcurrentHashMap<String, Map<String, Cookie>> mIndex = new ConcurrentHashMap<>();
+
+    private volatile SharedPreferences mPreferences;
+
+    public PersistentCookieJar(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    @Override
+    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor editor = mPreferences.edit();
+        for (Cookie cookie : cookies) {
+            String key = createKey(cookie);
+            Map<String, Cookie> bucket = getBucket(cookie.domain());
+            if (cookie.expiresAt() <= now) {
+                // 服务端通过过期时间删除 cookie
+                bucket.remove(key);
+                editor.remove(key);
+            } else {
+                bucket.put(key, cookie);
+                editor.putString(key, cookie.toString());
+            }
+        }
+        editor.apply();
+    }
+
+    @Override
+    public List<Cookie> loadForRequest(HttpUrl url) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        List<Cookie> result = null;
+        List<String> expiredKeys = null;
+
+        String domain = url.host();
+        while (domain != null) {
+            Map<String, Cookie> bucket = mIndex.get(domain);
+            if (bucket != null) {
+                for (Iterator<Map.Entry<String, Cookie>> it = bucket.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, Cookie> entry = it.next();
+                    Cookie cookie = entry.getValue();
+                    if (cookie.expiresAt() <= now) {
+                        it.remove();
+                        if (expiredKeys == null) {
+                            expiredKeys = new ArrayList<>();
+                        }
+                        expiredKeys.add(entry.getKey());
+                    } else if (cookie.matches(url)) {
+                        if (result == null) {
+                            result = new ArrayList<>();
+                        }
+                        result.add(cookie);
+                    }
+                }
+            }
+            domain = parentDomain(domain);
+        }
+
+        if (expiredKeys != null) {
+            SharedPreferences.Editor editor = mPreferences.edit();
+            for (String key : expiredKeys) {
+                editor.remove(key);
+            }
+            editor.apply();
+        }
+        return result != null ? result : Collections.<Cookie>emptyList();
+    }
+
+    /**
+     * 清除全部 cookie，退出登录时使用
+     */
+    public void clear() {
+        ensureLoaded();
+        mIndex.clear();
+        mPreferences.edit().clear().apply();
+    }
+
+    private Map<String, Cookie> getBucket(String domain) {
+        Map<String, Cookie> bucket = mIndex.get(domain);
+        if (bucket == null) {
+            bucket = new ConcurrentHashMap<>();
+            Map<String, Cookie> previous = mIndex.putIfAbsent(domain, bucket);
+            if (previous != null) {
+                bucket = previous;
+            }
+        }
+        return bucket;
+    }
+
+    private void ensureLoaded() {
+        if (mPreferences != null) {
+            return;
+        }
+        synchronized (this) {
+            if (mPreferences != null) {
+                return;
+            }
+            SharedPreferences preferences = mContext.getSharedPreferences(PREFERENCES_NAME,
+                    Context.MODE_PRIVATE);
+            SharedPreferences.Editor editor = preferences.edit();
+            boolean dirty = false;
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                Cookie cookie = decode(entry.getKey(), entry.getValue());
+                if (cookie == null || cookie.expiresAt() <= now) {
+                    editor.remove(entry.getKey());
+                    dirty = true;
+                } else {
+                    getBucket(cookie.domain()).put(entry.getKey(), cookie);
+                }
+            }
+            if (dirty) {
+                editor.apply();
+            }
+            mPreferences = preferences;
+        }
+    }
+
+    private static Cookie decode(String key, Object value) {
+        if (!(value instanceof String)) {
+            return null;
+        }
+        int first = key.indexOf(KEY_SEPARATOR);
+        int second = key.indexOf(KEY_SEPARATOR, first + 1);
+        if (first <= 0 || second < 0) {
+            return null;
+        }
+        HttpUrl url = HttpUrl.parse("http://" + key.substring(0, first) + key.substring(first + 1, second));
+        if (url == null) {
+            Logger.w(TAG, "invalid cookie key " + key);
+            return null;
+        }
+        return Cookie.parse(url, (String) value);
+    }
+
+    private static String createKey(Cookie cookie) {
+        return cookie.domain() + KEY_SEPARATOR + cookie.path() + KEY_SEPARATOR + cookie.name();
+    }
+
+    private static String parentDomain(String domain) {
+        int index = domain.indexOf('.');
+        // 不回溯到顶级域名
+        if (index < 0 || domain.indexOf('.', index + 1) < 0) {
+            return null;
+        }
+        return domain.substring(index + 1);
+    }
+}
@@ -26,22 +26,18 @@ package com.github.moduth.petlover.data.network;
 
 import com.github.moduth.ext.Ext;
 import com.github.moduth.ext.component.cache.sp.ConfigManager;
+import com.github.moduth.ext.utils.StorageUtils;
+import com.github.moduth.ext.utils.StringUtils;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.io.File;
 
-import okhttp3.Cookie;
-import okhttp3.CookieJar;
-import okhttp3.HttpUrl;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 public class PetloverService {
 
@@ -55,15 +51,19 @@ public class PetloverService {
 
     private static final String KEY_ENVIRONMENT = "api_environment";
 
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
     public static final boolean INITIAL_ENVIRONMENT_DEV = Ext.g().isDebuggable();
     public static boolean isDevEnvironment = ConfigManager.getBoolean(KEY_ENVIRONMENT, INITIAL_ENVIRONMENT_DEV);
-    public static String token = ConfigManager.getString("token", "", ConfigManager.KEY_ACCOUNT);;
     public static boolean wifiHighQuality = false;
 
     private static PetloverService mInstance;
 
     private Retrofit mRetrofit;
 
+    private final PersistentCookieJar mCookieJar = new PersistentCookieJar(Ext.getContext());
+
     public static void toggleEnvironment() {
         isDevEnvironment = !isDevEnvironment;
         ConfigManager.putBoolean(KEY_ENVIRONMENT, isDevEnvironment);
@@ -88,6 +88,13 @@ public class PetloverService {
         return isDevEnvironment ? API_DEV_URL : API_PRODUCT_URL;
     }
 
+    /**
+     * 清除持久化的 cookie，退出登录时调用
+     */
+    public void clearCookies() {
+        mCookieJar.clear();
+    }
+
     public <T> T createApi(Class<T> clazz) {
         return mRetrofit.create(clazz);
     }
@@ -101,7 +108,7 @@ public class PetloverService {
                 .setDateFormat("yyyy-MM-dd HH:mm:ss").create();
         Retrofit.Builder builder = new Retrofit.Builder()
                 .baseUrl(getBaseUrl())
-                .addConverterFactory(GsonConverterFactory.create(gson))
+                .addConverterFactory(PlResponseConverterFactory.create(gson))
                 .client(getClient());
         if (useRxJava) {
             builder.addCallAdapterFactory(RxJavaCallAdapterFactory.create());
@@ -118,27 +125,22 @@ public class PetloverService {
             logging.setLevel(HttpLoggingInterceptor.Level.BASIC);
         }
 
-        return new OkHttpClient.Builder()
+        return NetworkEngine.getInstance().newBuilder()
+                .cache(getCache())
                 .addInterceptor(new HeadInterceptor())
+                .addInterceptor(new CacheInterceptor(false))
                 .addInterceptor(logging)
-                .connectTimeout(5, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
+                .addNetworkInterceptor(new CacheInterceptor(true))
                 .hostnameVerifier((hostname, session) -> true)
-                .cookieJar(new CookieJar() {
-                    private final HashMap<HttpUrl, List<Cookie>> cookieStore = new HashMap<>();
-
-                    @Override
-                    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
-                        cookieStore.put(HttpUrl.parse(url.host()), cookies);
-                    }
-
-                    @Override
-                    public List<Cookie> loadForRequest(HttpUrl url) {
-                        List<Cookie> cookies = cookieStore.get(HttpUrl.parse(url.host()));
-                        return cookies != null ? cookies : new ArrayList<>();
-                    }
-                })
+                .cookieJar(mCookieJar)
                 .build();
     }
 
+    private Cache getCache() {
+        String cacheDir = StorageUtils.getCacheDir(Ext.getContext(), HTTP_CACHE_DIR, false);
+        if (StringUtils.isEmpty(cacheDir)) {
+            return null;
+        }
+        return new Cache(new File(cacheDir), HTTP_CACHE_SIZE);
+    }
 }
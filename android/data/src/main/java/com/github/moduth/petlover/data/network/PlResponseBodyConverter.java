@@ -0,0 +1,151 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.petlover.data.exception.ResponseException;
+import com.github.moduth.petlover.domain.model.PlResponse;
+import com.github.moduth.petlover.domain.model.TokenEntity;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * 单次流式解析 status_no / status_msg / data 全局响应格式。
+ * <p>
+ * 外层字段由 {@link JsonReader} 逐个读取；data 只在状态码为 0（或
+ * {@link ResponseException#ERROR_CODE_NEED_PERFECT_PROFILE}，其 data 为凭证）时才交给 Gson 为目标类型
+ * 生成的 {@link TypeAdapter} 绑定，FieldNamingPolicy、ExclusionStrategy、{@code @Expose}、
+ * {@code @JsonAdapter} 等配置都照常生效。其余状态码下 data 直接 skip，不构建任何实体，
+ * 读完外层后抛出 {@link ResponseException}。
+ * <p>
+ * 服务端通常先输出 status_no；若 data 出现在 status_no 之前，data 先读成 {@link JsonElement}，
+ * 状态码确定后再决定是否绑定。
+ */
+final class PlResponseBodyConverter<T extends PlResponse> implements Converter<ResponseBody, T> {
+
+    private static final String FIELD_STATUS_CODE = "status_no";
+    private static final String FIELD_STATUS_MESSAGE = "status_msg";
+    private static final String FIELD_TIME = "time";
+    private static final String FIELD_ELAPSED = "elapsed";
+    private static final String FIELD_DATA = "data";
+
+    private final Gson mGson;
+    private final TypeAdapter<T> mDataAdapter;
+
+    PlResponseBodyConverter(Gson gson, TypeAdapter<T> dataAdapter) {
+        mGson = gson;
+        mDataAdapter = dataAdapter;
+    }
+
+    @Override
+    public T convert(ResponseBody value) throws IOException {
+        JsonReader reader = mGson.newJsonReader(value.charStream());
+        try {
+            return read(reader);
+        } finally {
+            value.close();
+        }
+    }
+
+    T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        PlResponse envelope = new PlResponse();
+        boolean statusRead = false;
+        T data = null;
+        TokenEntity token = null;
+        JsonElement pendingData = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (FIELD_STATUS_CODE.equals(name)) {
+                envelope.setStatusCode(in.nextInt());
+                statusRead = true;
+            } else if (FIELD_STATUS_MESSAGE.equals(name)) {
+                envelope.setStatusMessage(in.peek() == JsonToken.NULL ? nextNull(in) : in.nextString());
+            } else if (FIELD_TIME.equals(name)) {
+                envelope.setTime(in.nextLong());
+            } else if (FIELD_ELAPSED.equals(name)) {
+                envelope.elapsed = in.nextDouble();
+            } else if (FIELD_DATA.equals(name) && !statusRead) {
+                pendingData = mGson.getAdapter(JsonElement.class).read(in);
+            } else if (FIELD_DATA.equals(name) && isSuccess(envelope)) {
+                data = mDataAdapter.read(in);
+            } else if (FIELD_DATA.equals(name) && isNeedPerfectProfile(envelope)) {
+                token = mGson.getAdapter(TokenEntity.class).read(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (pendingData != null && isSuccess(envelope)) {
+            data = mDataAdapter.fromJsonTree(pendingData);
+        } else if (pendingData != null && isNeedPerfectProfile(envelope)) {
+            token = mGson.getAdapter(TokenEntity.class).fromJsonTree(pendingData);
+        }
+
+        if (!isSuccess(envelope)) {
+            throw new ResponseException(token != null ? copyEnvelope(envelope, token) : envelope);
+        }
+        if (data == null) {
+            // 成功但没有 data，仍返回一个只带外层字段的实例
+            data = mDataAdapter.fromJsonTree(new JsonObject());
+        }
+        return copyEnvelope(envelope, data);
+    }
+
+    private static boolean isSuccess(PlResponse envelope) {
+        return envelope.getStatusCode() == ResponseException.STATUS_CODE_SUCCESS;
+    }
+
+    private static boolean isNeedPerfectProfile(PlResponse envelope) {
+        return envelope.getStatusCode() == ResponseException.ERROR_CODE_NEED_PERFECT_PROFILE;
+    }
+
+    private static String nextNull(JsonReader in) throws IOException {
+        in.nextNull();
+        return null;
+    }
+
+    private static <R extends PlResponse> R copyEnvelope(PlResponse envelope, R target) {
+        target.setStatusCode(envelope.getStatusCode());
+        target.setStatusMessage(envelope.getStatusMessage());
+        target.setTime(envelope.getTime());
+        target.elapsed = envelope.elapsed;
+        return target;
+    }
+}
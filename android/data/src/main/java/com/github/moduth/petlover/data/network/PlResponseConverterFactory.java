@@ -0,0 +1,90 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.petlover.domain.model.PlResponse;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 针对 {@link PlResponse} 全局响应格式的 Converter.Factory。
+ * <p>
+ * 响应类型为 {@link PlResponse} 子类时使用 {@link PlResponseBodyConverter}，单次流式解析外层字段，
+ * data 只在成功时由 Gson 自身的 TypeAdapter 绑定，状态码非 0 时跳过 data 并抛出
+ * {@link com.github.moduth.petlover.data.exception.ResponseException}；
+ * 其余类型及请求体仍交给 {@link GsonConverterFactory} 处理。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public final class PlResponseConverterFactory extends Converter.Factory {
+
+    private final Gson mGson;
+    private final GsonConverterFactory mDelegate;
+
+    public static PlResponseConverterFactory create(Gson gson) {
+        if (gson == null) {
+            throw new NullPointerException("gson == null");
+        }
+        return new PlResponseConverterFactory(gson);
+    }
+
+    private PlResponseConverterFactory(Gson gson) {
+        mGson = gson;
+        mDelegate = GsonConverterFactory.create(gson);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        TypeToken<?> typeToken = TypeToken.get(type);
+        if (PlResponse.class.isAssignableFrom(typeToken.getRawType())) {
+            return newEnvelopeConverter(typeToken);
+        }
+        return mDelegate.responseBodyConverter(type, annotations, retrofit);
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type,
+                                                          Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations,
+                                                          Retrofit retrofit) {
+        return mDelegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends PlResponse> Converter<ResponseBody, T> newEnvelopeConverter(TypeToken<?> typeToken) {
+        return new PlResponseBodyConverter<>(mGson, mGson.getAdapter((TypeToken<T>) typeToken));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.repository;
+
+import com.github.moduth.ext.component.logger.Logger;
+import com.github.moduth.petlover.data.cache.EntityCache;
+import com.github.moduth.petlover.domain.interactor.CachePolicy;
+
+import java.lang.reflect.Type;
+
+import rx.Observable;
+
+/**
+ * 带缓存的repository基类，在 {@link EntityCache} 之上按 {@link CachePolicy} 组合缓存和网络请求。
+ * <p>
+ * 子类把每个查询写成：
+ * <pre>
+ * public Observable&lt;FeedList&gt; getFeeds(int page, CachePolicy policy) {
+ *     return load("feeds/" + page, FeedList.class, FEED_TTL_MS, policy, mApi.getFeeds(page));
+ * }
+ * </pre>
+ * 缓存读取在订阅时执行，跟随 {@link com.github.moduth.petlover.domain.interactor.UseCase} 的后台线程；
+ * 网络结果总会写回缓存。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public abstract class CachedRepository {
+
+    private static final String TAG = "CachedRepository";
+
+    protected final EntityCache mCache;
+
+    protected CachedRepository(EntityCache cache) {
+        mCache = cache;
+    }
+
+    /**
+     * @param key       identity of the query, such as the path and its parameters
+     * @param type      type of the entity, use a {@link com.google.gson.reflect.TypeToken} for generics
+     * @param ttlMillis how long a network value may be served from cache, 0 for no expiry
+     * @param network   the request, only subscribed when the policy needs it
+     */
+    protected <T> Observable<T> load(String key, Type type, long ttlMillis, CachePolicy policy,
+                                     Observable<T> network) {
+        switch (policy) {
+            case CACHE_ONLY:
+                return Observable.defer(() -> {
+                    T cached = mCache.get(key, type);
+                    return cached != null ? Observable.just(cached) : Observable.<T>empty();
+                });
+            case NETWORK_ONLY:
+                return network.doOnNext(value -> mCache.put(key, value, ttlMillis));
+            case CACHE_THEN_NETWORK:
+            default:
+                return Observable.defer(() -> {
+                    T cached = mCache.get(key, type);
+                    if (cached == null) {
+                        return network.doOnNext(value -> mCache.put(key, value, ttlMillis));
+                    }
+                    // the screen is already painted, only a changed value is worth another render
+                    Observable<T> refresh = network
+                            .filter(value -> mCache.put(key, value, ttlMillis))
+                            .onErrorResumeNext(error -> {
+                                Logger.w(TAG, "refresh of " + key + " failed, cached value kept", error);
+                                return Observable.<T>empty();
+                            });
+                    return Observable.just(cached).concatWith(refresh);
+                });
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.upload;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * 文件中的一段，写出时直接从磁盘流式读取，不会把整块数据读入内存。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+class ChunkRequestBody extends RequestBody {
+
+    private static final MediaType CONTENT_TYPE = MediaType.parse("application/octet-stream");
+
+    private final File mFile;
+    private final long mOffset;
+    private final long mLength;
+
+    ChunkRequestBody(File file, long offset, long length) {
+        mFile = file;
+        mOffset = offset;
+        mLength = length;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        return mLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        FileInputStream input = new FileInputStream(mFile);
+        Source source = null;
+        try {
+            input.getChannel().position(mOffset);
+            source = Okio.source(input);
+            sink.write(source, mLength);
+        } finally {
+            if (source != null) {
+                source.close();
+            } else {
+                input.close();
+            }
+        }
+    }
+}
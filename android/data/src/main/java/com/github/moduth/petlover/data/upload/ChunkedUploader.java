@@ -0,0 +1,289 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.upload;
+
+import com.github.moduth.ext.component.logger.Logger;
+import com.github.moduth.ext.utils.CryptoUtils;
+import com.github.moduth.petlover.data.exception.UploadErrorException;
+import com.github.moduth.petlover.data.network.NetworkEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * 分片、可断点续传的文件上传。
+ * <p>
+ * 文件按 {@link Builder#chunkSize(int)} 切片，每片以 multipart/form-data POST 到上传地址，
+ * 参数为 upload_id、chunk_index、chunk_count 与 file；全部分片完成后向合并地址 POST upload_id。
+ * 已完成的分片记录在 {@link UploadProgressStore} 中，同一文件再次上传时只上传剩余分片。
+ * 单个分片遇到网络错误或 408/429/5xx 时按指数退避重试，其余 4xx 直接失败；
+ * 重试用尽或不可重试时以 {@link UploadErrorException} 结束。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class ChunkedUploader {
+
+    private static final String TAG = "ChunkedUploader";
+
+    public static final String PARAM_UPLOAD_ID = "upload_id";
+    public static final String PARAM_CHUNK_INDEX = "chunk_index";
+    public static final String PARAM_CHUNK_COUNT = "chunk_count";
+    public static final String PARAM_FILE = "file";
+
+    private final OkHttpClient mClient;
+    private final String mUploadUrl;
+    private final String mCompleteUrl;
+    private final UploadProgressStore mStore;
+    private final int mChunkSize;
+    private final int mParallelism;
+    private final int mMaxRetries;
+    private final long mRetryDelayMs;
+
+    private ChunkedUploader(Builder builder) {
+        mClient = builder.mClient;
+        mUploadUrl = builder.mUploadUrl;
+        mCompleteUrl = builder.mCompleteUrl;
+        mStore = builder.mStore;
+        mChunkSize = builder.mChunkSize;
+        mParallelism = builder.mParallelism;
+        mMaxRetries = builder.mMaxRetries;
+        mRetryDelayMs = builder.mRetryDelayMs;
+    }
+
+    /**
+     * 上传文件，订阅后开始执行。
+     *
+     * @param file 待上传文件
+     * @return 每完成一个分片发射一次进度，全部完成并合并后结束
+     */
+    public Observable<UploadProgress> upload(File file) {
+        return Observable.defer(() -> {
+            if (!file.isFile()) {
+                return Observable.error(new UploadErrorException("file not found: " + file));
+            }
+            final long length = file.length();
+            final int totalChunks = (int) Math.max(1, (length + mChunkSize - 1) / mChunkSize);
+            final String uploadId = createUploadId(file, length);
+            final BitSet uploaded = mStore.load(uploadId, totalChunks);
+            final int alreadyUploaded = uploaded.cardinality();
+            Logger.i(TAG, "upload " + file.getName() + " id=" + uploadId
+                    + ", chunks " + alreadyUploaded + "/" + totalChunks);
+
+            Observable<UploadProgress> chunks = Observable.range(0, totalChunks)
+                    .filter(index -> !uploaded.get(index))
+                    .flatMap(index -> uploadChunk(file, uploadId, index, totalChunks, length)
+                            .subscribeOn(Schedulers.io()), mParallelism)
+                    .doOnNext(index -> mStore.markUploaded(uploadId, totalChunks, index))
+                    .scan(alreadyUploaded, (count, index) -> count + 1)
+                    .map(count -> new UploadProgress(uploadId, count, totalChunks));
+
+            Observable<UploadProgress> complete = post(new MultipartBody.Builder()
+                    .setType(MultipartBody.FORM)
+                    .addFormDataPart(PARAM_UPLOAD_ID, uploadId)
+                    .build(), mCompleteUrl)
+                    .compose(this::withRetry)
+                    .doOnNext(ignored -> mStore.remove(uploadId))
+                    .map(ignored -> new UploadProgress(uploadId, totalChunks, totalChunks));
+
+            return Observable.concat(chunks, complete)
+                    .onErrorResumeNext(e -> Observable.error(e instanceof UploadErrorException
+                            ? e : new UploadErrorException("upload failed: " + uploadId, e)));
+        });
+    }
+
+    private Observable<Integer> uploadChunk(File file, String uploadId, int index, int totalChunks,
+                                            long fileLength) {
+        long offset = (long) index * mChunkSize;
+        long length = Math.min(mChunkSize, fileLength - offset);
+        RequestBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart(PARAM_UPLOAD_ID, uploadId)
+                .addFormDataPart(PARAM_CHUNK_INDEX, String.valueOf(index))
+                .addFormDataPart(PARAM_CHUNK_COUNT, String.valueOf(totalChunks))
+                .addFormDataPart(PARAM_FILE, file.getName(), new ChunkRequestBody(file, offset, length))
+                .build();
+        return post(body, mUploadUrl)
+                .compose(this::withRetry)
+                .map(ignored -> index);
+    }
+
+    /**
+     * 每次订阅发起一次请求，取消订阅时取消请求
+     */
+    private Observable<Boolean> post(RequestBody body, String url) {
+        return Observable.create(subscriber -> {
+            Call call = mClient.newCall(new Request.Builder().url(url).post(body).build());
+            subscriber.add(Subscriptions.create(call::cancel));
+            try {
+                Response response = call.execute();
+                try {
+                    if (!response.isSuccessful()) {
+                        throw new HttpCodeException(response.code(), url);
+                    }
+                } finally {
+                    response.body().close();
+                }
+                if (!subscriber.isUnsubscribed()) {
+                    subscriber.onNext(Boolean.TRUE);
+                    subscriber.onCompleted();
+                }
+            } catch (IOException e) {
+                if (!subscriber.isUnsubscribed()) {
+                    subscriber.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 重试在 io 线程上重新订阅，阻塞的请求不会跑到 computation 线程上
+     */
+    private <T> Observable<T> withRetry(Observable<T> source) {
+        return source.retryWhen(errors -> {
+            int[] attempt = {0};
+            return errors.flatMap(error -> !isRetryable(error) || ++attempt[0] > mMaxRetries
+                    ? Observable.<Long>error(error)
+                    : Observable.timer(mRetryDelayMs << (attempt[0] - 1), TimeUnit.MILLISECONDS,
+                    Schedulers.io()));
+        });
+    }
+
+    /**
+     * 网络错误和 408/429/5xx 可以重试，其余 http 错误重试也不会成功
+     */
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof HttpCodeException) {
+            int code = ((HttpCodeException) error).code;
+            return code == 408 || code == 429 || code >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    /**
+     * 非 2xx 响应
+     */
+    static final class HttpCodeException extends IOException {
+        final int code;
+
+        HttpCodeException(int code, String url) {
+            super("unexpected code " + code + " for " + url);
+            this.code = code;
+        }
+    }
+
+    private String createUploadId(File file, long length) {
+        return CryptoUtils.MD5.toMD5(file.getAbsolutePath() + ':' + length + ':'
+                + file.lastModified() + ':' + mChunkSize);
+    }
+
+    public static class Builder {
+        private OkHttpClient mClient;
+        private String mUploadUrl;
+        private String mCompleteUrl;
+        private UploadProgressStore mStore;
+        private int mChunkSize = 512 * 1024;
+        private int mParallelism = 2;
+        private int mMaxRetries = 3;
+        private long mRetryDelayMs = 1000;
+
+        /**
+         * @param client 不设置时使用 {@link NetworkEngine#getUploadClient()}，与接口请求共享连接池
+         */
+        public Builder client(OkHttpClient client) {
+            mClient = client;
+            return this;
+        }
+
+        public Builder uploadUrl(String uploadUrl) {
+            mUploadUrl = uploadUrl;
+            return this;
+        }
+
+        public Builder completeUrl(String completeUrl) {
+            mCompleteUrl = completeUrl;
+            return this;
+        }
+
+        public Builder progressStore(UploadProgressStore store) {
+            mStore = store;
+            return this;
+        }
+
+        public Builder chunkSize(int chunkSize) {
+            mChunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * @param parallelism 同时上传的分片数
+         */
+        public Builder parallelism(int parallelism) {
+            mParallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param maxRetries 单个分片失败后的最大重试次数
+         */
+        public Builder maxRetries(int maxRetries) {
+            mMaxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param retryDelayMs 第一次重试的延迟，之后每次翻倍
+         */
+        public Builder retryDelay(long retryDelayMs) {
+            mRetryDelayMs = retryDelayMs;
+            return this;
+        }
+
+        public ChunkedUploader build() {
+            if (mUploadUrl == null || mCompleteUrl == null || mStore == null) {
+                throw new IllegalStateException("urls and progress store are required");
+            }
+            if (mClient == null) {
+                mClient = NetworkEngine.getInstance().getUploadClient();
+            }
+            if (mChunkSize <= 0 || mParallelism <= 0 || mMaxRetries < 0) {
+                throw new IllegalArgumentException("invalid chunk size, parallelism or retries");
+            }
+            return new ChunkedUploader(this);
+        }
+    }
+}
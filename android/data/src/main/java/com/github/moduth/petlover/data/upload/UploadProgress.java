@@ -0,0 +1,67 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.upload;
+
+/**
+ * 上传进度
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class UploadProgress {
+
+    private final String mUploadId;
+    private final int mUploadedChunks;
+    private final int mTotalChunks;
+
+    UploadProgress(String uploadId, int uploadedChunks, int totalChunks) {
+        mUploadId = uploadId;
+        mUploadedChunks = uploadedChunks;
+        mTotalChunks = totalChunks;
+    }
+
+    public String getUploadId() {
+        return mUploadId;
+    }
+
+    public int getUploadedChunks() {
+        return mUploadedChunks;
+    }
+
+    public int getTotalChunks() {
+        return mTotalChunks;
+    }
+
+    /**
+     * @return 0 ~ 1
+     */
+    public float getProgress() {
+        return mTotalChunks == 0 ? 1f : (float) mUploadedChunks / mTotalChunks;
+    }
+
+    public boolean isFinished() {
+        return mUploadedChunks >= mTotalChunks;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.data.upload;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.BitSet;
+
+/**
+ * 持久化每个上传任务已完成的分片，进程被杀后可以从断点继续。
+ * <p>
+ * 每个任务以 "0"/"1" 串的形式保存，第 i 位表示第 i 个分片是否已上传。
+ *
+ * @author markzhai
+ * @version 1.3.0
+ */
+public class UploadProgressStore {
+
+    private static final String PREFERENCES_NAME = "PetloverUpload";
+
+    private final SharedPreferences mPreferences;
+
+    public UploadProgressStore(Context context) {
+        this(context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE));
+    }
+
+    UploadProgressStore(SharedPreferences preferences) {
+        mPreferences = preferences;
+    }
+
+    /**
+     * @return 已完成的分片，没有记录或记录与分片数不符时返回空集合
+     */
+    public synchronized BitSet load(String uploadId, int totalChunks) {
+        BitSet result = new BitSet(totalChunks);
+        String saved = mPreferences.getString(uploadId, null);
+        if (saved == null || saved.length() != totalChunks) {
+            return result;
+        }
+        for (int i = 0; i < totalChunks; i++) {
+            if (saved.charAt(i) == '1') {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void markUploaded(String uploadId, int totalChunks, int chunkIndex) {
+        BitSet uploaded = load(uploadId, totalChunks);
+        uploaded.set(chunkIndex);
+        char[] chars = new char[totalChunks];
+        for (int i = 0; i < totalChunks; i++) {
+            chars[i] = uploaded.get(i) ? '1' : '0';
+        }
+        mPreferences.edit().putString(uploadId, new String(chars)).apply();
+    }
+
+    public synchronized void remove(String uploadId) {
+        mPreferences.edit().remove(uploadId).apply();
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.moduth.petlover.data.cache;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DiskLruCacheTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() {
+        mDirectory = new File(mFolder.getRoot(), "cache");
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedValue() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 10);
+        cache.putString("a", "aaaa", 0);
+        cache.putString("b", "bbbb", 0);
+        // a is now more recent than b
+        assertEquals("aaaa", cache.getString("a"));
+        cache.putString("c", "cccc", 0);
+
+        assertNull(cache.getString("b"));
+        assertEquals("aaaa", cache.getString("a"));
+        assertEquals("cccc", cache.getString("c"));
+        assertEquals(8, cache.size());
+        assertFalse(new File(mDirectory, "b").exists());
+    }
+
+    @Test
+    public void replacingAValueKeepsTheSizeRight() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 100);
+        cache.putString("a", "12345", 0);
+        cache.putString("a", "12", 0);
+
+        assertEquals("12", cache.getString("a"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void expiredValuesAreGone() throws IOException, InterruptedException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 100);
+        long before = System.currentTimeMillis();
+        cache.putString("short", "x", 50);
+        cache.putString("forever", "y", 0);
+        long expiresAt = cache.getExpiresAt("short");
+        assertTrue(expiresAt >= before + 50);
+        assertEquals(0, cache.getExpiresAt("forever"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.getString("short"));
+        assertEquals("y", cache.getString("forever"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void journalRestoresEntriesExpiryAndOrder() throws IOException, InterruptedException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 12);
+        cache.putString("a", "aaaa", 0);
+        cache.putString("b", "bbbb", 0);
+        cache.putString("gone", "g", 50);
+        cache.getString("a");
+        cache.remove("b");
+        cache.putString("b", "bbbb", 0);
+
+        DiskLruCache reopened = new DiskLruCache(mDirectory, 12);
+        assertEquals(9, reopened.size());
+        Thread.sleep(100);
+        // replayed access order is gone, a, b; the expired value is dropped and makes room for c
+        reopened.putString("c", "cccc", 0);
+        assertNull(reopened.getString("gone"));
+        assertEquals("aaaa", reopened.getString("a"));
+        assertEquals("bbbb", reopened.getString("b"));
+        assertEquals("cccc", reopened.getString("c"));
+        assertEquals(12, reopened.size());
+    }
+
+    @Test
+    public void openStreamSurvivesEviction() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 4);
+        cache.putString("a", "aaaa", 0);
+        InputStream in = cache.get("a");
+        try {
+            cache.putString("b", "bbbb", 0);
+            assertNull(cache.getString("a"));
+            assertEquals('a', in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void journalNameIsNotAKey() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 100);
+        try {
+            cache.putString("journal", "x", 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            cache.get("journal.tmp");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        cache.putString("journal2", "ok", 0);
+        assertEquals("ok", new DiskLruCache(mDirectory, 100).getString("journal2"));
+    }
+
+    @Test
+    public void clearRemovesEverything() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDirectory, 100);
+        cache.putString("a", "1", 0);
+        cache.putString("b", "2", 0);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.getString("a"));
+        assertEquals(0, new DiskLruCache(mDirectory, 100).size());
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.moduth.petlover.data.cache;
+
+import android.util.Log;
+
+import com.github.moduth.ext.component.logger.Logger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityCacheTest {
+
+    // {"name":"xxxx","age":1} is 23 chars, estimated at 92 bytes in memory
+    private static final int ONE_PET = 100;
+
+    static class Pet {
+        String name;
+        int age;
+
+        Pet(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private DiskLruCache mDisk;
+
+    @Before
+    public void setUp() {
+        Logger.setLevel(Log.ASSERT);
+        mDisk = new DiskLruCache(new File(mFolder.getRoot(), "cache"), 1024 * 1024);
+    }
+
+    @Test
+    public void memoryHitReturnsTheSameInstance() {
+        EntityCache cache = new EntityCache(mDisk, 10 * ONE_PET);
+        Pet pet = new Pet("mimi", 1);
+        cache.put("pet", pet, 0);
+
+        assertSame(pet, cache.get("pet", Pet.class));
+        assertSame(pet, cache.get("pet", Pet.class));
+    }
+
+    @Test
+    public void memoryTierIsSizedByBytes() {
+        EntityCache cache = new EntityCache(mDisk, ONE_PET);
+        Pet first = new Pet("mimi", 1);
+        Pet second = new Pet("wang", 2);
+        cache.put("first", first, 0);
+        cache.put("second", second, 0);
+
+        // only one pet fits in memory, the first one comes back decoded from disk
+        assertSame(second, cache.get("second", Pet.class));
+        Pet decoded = cache.get("first", Pet.class);
+        assertNotSame(first, decoded);
+        assertEquals("mimi", decoded.name);
+        // and its promotion pushed the second one out
+        assertNotSame(second, cache.get("second", Pet.class));
+    }
+
+    @Test
+    public void diskHitIsPromotedToMemory() throws IOException {
+        new EntityCache(mDisk, 10 * ONE_PET).put("pet", new Pet("mimi", 1), 0);
+
+        EntityCache cache = new EntityCache(mDisk, 10 * ONE_PET);
+        Pet fromDisk = cache.get("pet", Pet.class);
+        assertEquals("mimi", fromDisk.name);
+
+        mDisk.remove(DiskLruCache.keyOf("pet"));
+        assertSame(fromDisk, cache.get("pet", Pet.class));
+    }
+
+    @Test
+    public void expiredEntitiesAreGoneFromBothTiers() throws InterruptedException {
+        EntityCache cache = new EntityCache(mDisk, 10 * ONE_PET);
+        cache.put("pet", new Pet("mimi", 1), 50);
+        cache.put("forever", new Pet("wang", 2), 0);
+        assertNotNull(cache.get("pet", Pet.class));
+
+        Thread.sleep(100);
+        assertNull(cache.get("pet", Pet.class));
+        assertNull(new EntityCache(mDisk, 10 * ONE_PET).get("pet", Pet.class));
+        assertNotNull(cache.get("forever", Pet.class));
+    }
+
+    @Test
+    public void putReportsWhetherTheJsonChanged() {
+        EntityCache cache = new EntityCache(mDisk, 10 * ONE_PET);
+        assertTrue(cache.put("pet", new Pet("mimi", 1), 0));
+        assertFalse(cache.put("pet", new Pet("mimi", 1), 0));
+        assertTrue(cache.put("pet", new Pet("mimi", 2), 0));
+
+        // cache then network: the cached value is read first, an equal response is no change
+        EntityCache restarted = new EntityCache(mDisk, 10 * ONE_PET);
+        assertEquals(2, restarted.<Pet>get("pet", Pet.class).age);
+        assertFalse(restarted.put("pet", new Pet("mimi", 2), 0));
+        assertTrue(restarted.put("pet", new Pet("mimi", 3), 0));
+    }
+
+    @Test
+    public void dropsUnreadableEntities() throws IOException {
+        mDisk.putString(DiskLruCache.keyOf("pet"), "[1, 2]", 0);
+        EntityCache cache = new EntityCache(mDisk, 10 * ONE_PET);
+
+        assertNull(cache.get("pet", Pet.class));
+        assertNull(mDisk.getString(DiskLruCache.keyOf("pet")));
+    }
+
+    @Test
+    public void clearDropsBothTiers() throws IOException {
+        EntityCache cache = new EntityCache(mDisk, 10 * ONE_PET);
+        cache.put("pet", new Pet("mimi", 1), 0);
+        cache.clear();
+
+        assertNull(cache.get("pet", Pet.class));
+        assertEquals(0, mDisk.size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.petlover.data.exception.NetworkConnectionException;
+import com.github.moduth.petlover.data.exception.ResponseException;
+import com.github.moduth.petlover.domain.interactor.RetryPolicy;
+import com.github.moduth.petlover.domain.model.PlResponse;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.adapter.rxjava.HttpException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultRetryPolicyTest {
+
+    @Test
+    public void networkFailuresAreTransient() {
+        assertTrue(DefaultRetryPolicy.isTransient(new NetworkConnectionException()));
+        assertTrue(DefaultRetryPolicy.isTransient(new SocketTimeoutException()));
+        assertTrue(DefaultRetryPolicy.isTransient(new ConnectException()));
+        assertTrue(DefaultRetryPolicy.isTransient(new UnknownHostException()));
+    }
+
+    @Test
+    public void httpCodes() {
+        assertTrue(DefaultRetryPolicy.isTransient(http(408)));
+        assertTrue(DefaultRetryPolicy.isTransient(http(429)));
+        assertTrue(DefaultRetryPolicy.isTransient(http(503)));
+        assertFalse(DefaultRetryPolicy.isTransient(http(400)));
+        assertFalse(DefaultRetryPolicy.isTransient(http(404)));
+    }
+
+    @Test
+    public void statusCodes() {
+        assertTrue(DefaultRetryPolicy.isTransient(status(-999)));
+        assertFalse(DefaultRetryPolicy.isTransient(status(ResponseException.ERROR_CODE_NEED_LOGIN)));
+        assertFalse(DefaultRetryPolicy.isTransient(status(-1)));
+    }
+
+    @Test
+    public void otherErrorsArePermanent() {
+        assertFalse(DefaultRetryPolicy.isTransient(new IOException()));
+        assertFalse(DefaultRetryPolicy.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    public void backoffIsBoundedAndJittered() {
+        DefaultRetryPolicy policy = new DefaultRetryPolicy(3, 1000, 2500);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getRetryDelay(new SocketTimeoutException(), 1);
+            assertTrue(first >= 500 && first < 1000);
+            long third = policy.getRetryDelay(new SocketTimeoutException(), 3);
+            assertTrue(third >= 1250 && third < 2500);
+        }
+        assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(new SocketTimeoutException(), 4));
+        assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(http(404), 1));
+    }
+
+    private static HttpException http(int code) {
+        return new HttpException(Response.error(code, ResponseBody.create(null, "")));
+    }
+
+    private static ResponseException status(int code) {
+        PlResponse response = new PlResponse();
+        response.setStatusCode(code);
+        return new ResponseException(response);
+    }
+}
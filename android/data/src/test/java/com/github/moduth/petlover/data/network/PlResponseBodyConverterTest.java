@@ -0,0 +1,138 @@
+package com.github.moduth.petlover.data.network;
+
+import com.github.moduth.petlover.data.exception.ResponseException;
+import com.github.moduth.petlover.domain.model.PlResponse;
+import com.github.moduth.petlover.domain.model.TokenEntity;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PlResponseBodyConverterTest {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    static class Profile extends PlResponse {
+        String nickName;
+    }
+
+    /**
+     * Fails the test as soon as Gson is asked to bind a Profile.
+     */
+    static class FailingProfileAdapter extends TypeAdapter<Profile> {
+        @Override
+        public void write(JsonWriter out, Profile value) throws IOException {
+            throw new AssertionError("write");
+        }
+
+        @Override
+        public Profile read(JsonReader in) throws IOException {
+            throw new AssertionError("data bound on an error response");
+        }
+    }
+
+    @Test
+    public void bindsSuccessfulResponse() throws IOException {
+        TokenEntity token = convert(new Gson(), TokenEntity.class,
+                "{\"status_no\":0,\"status_msg\":\"ok\",\"time\":7,\"data\":{\"TOKEN\":\"t\",\"uid\":\"42\"}}");
+        assertEquals("t", token.getToken());
+        assertEquals("42", token.getUid());
+        assertEquals(7, token.getTime());
+        assertEquals("ok", token.getStatusMessage());
+    }
+
+    @Test
+    public void bindsDataBeforeStatus() throws IOException {
+        TokenEntity token = convert(new Gson(), TokenEntity.class,
+                "{\"data\":{\"TOKEN\":\"t\",\"uid\":\"42\"},\"status_no\":0}");
+        assertEquals("t", token.getToken());
+    }
+
+    @Test
+    public void successWithoutData() throws IOException {
+        TokenEntity token = convert(new Gson(), TokenEntity.class, "{\"status_no\":0,\"time\":3}");
+        assertNull(token.getToken());
+        assertEquals(3, token.getTime());
+    }
+
+    @Test
+    public void throwsOnErrorStatus() throws IOException {
+        try {
+            convert(new Gson(), TokenEntity.class,
+                    "{\"status_no\":-1000,\"status_msg\":\"login\",\"data\":{\"uid\":\"42\"}}");
+            fail();
+        } catch (ResponseException e) {
+            assertEquals(ResponseException.ERROR_CODE_NEED_LOGIN, e.getStatusCode());
+            assertEquals("login", e.getMessage());
+            assertNull(e.getVuser());
+        }
+    }
+
+    @Test
+    public void errorStatusNeverBindsData() throws IOException {
+        Gson gson = new GsonBuilder().registerTypeAdapter(Profile.class, new FailingProfileAdapter()).create();
+        String[] bodies = {
+                "{\"status_no\":-1,\"status_msg\":\"e\",\"data\":{\"nickName\":\"mark\",\"feed\":[1,2,3]}}",
+                "{\"data\":{\"nickName\":\"mark\",\"feed\":[1,2,3]},\"status_msg\":\"e\",\"status_no\":-1}",
+        };
+        for (String body : bodies) {
+            try {
+                convert(gson, Profile.class, body);
+                fail();
+            } catch (ResponseException e) {
+                assertEquals(-1, e.getStatusCode());
+            }
+        }
+    }
+
+    @Test
+    public void needPerfectProfileCarriesToken() throws IOException {
+        Gson gson = new GsonBuilder().registerTypeAdapter(Profile.class, new FailingProfileAdapter()).create();
+        try {
+            convert(gson, Profile.class,
+                    "{\"status_no\":-1010,\"status_msg\":\"profile\",\"data\":{\"TOKEN\":\"t\",\"uid\":\"42\"}}");
+            fail();
+        } catch (ResponseException e) {
+            assertEquals(ResponseException.ERROR_CODE_NEED_PERFECT_PROFILE, e.getStatusCode());
+            assertNotNull(e.getVuser());
+            assertEquals("t", e.getVuser().getToken());
+            assertEquals("42", e.getVuser().getUid());
+        }
+    }
+
+    @Test
+    public void honoursGsonConfiguration() throws IOException {
+        Gson gson = new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE).create();
+        Profile profile = convert(gson, Profile.class, "{\"status_no\":0,\"data\":{\"NickName\":\"mark\"}}");
+        assertEquals("mark", profile.nickName);
+    }
+
+    @Test
+    public void nullBody() throws IOException {
+        assertNull(convert(new Gson(), TokenEntity.class, "null"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T convert(Gson gson, Type type, String json) throws IOException {
+        Converter<ResponseBody, ?> converter = PlResponseConverterFactory.create(gson)
+                .responseBodyConverter(type, new Annotation[0], null);
+        return (T) converter.convert(ResponseBody.create(JSON, json));
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.moduth.petlover.data.repository;
+
+import android.util.Log;
+
+import com.github.moduth.ext.component.logger.Logger;
+import com.github.moduth.petlover.data.cache.EntityCache;
+import com.github.moduth.petlover.domain.interactor.CachePolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachedRepositoryTest {
+
+    private final MapEntityCache mCache = new MapEntityCache();
+    private final AtomicInteger mNetworkCalls = new AtomicInteger();
+    private NameRepository mRepository;
+
+    @Before
+    public void setUp() {
+        // keeps the file logger, which needs a device, out of the way
+        Logger.setLevel(Log.ASSERT);
+        mRepository = new NameRepository(mCache);
+    }
+
+    @Test
+    public void cachedValueIsPaintedBeforeTheNetworkOne() {
+        mCache.put("name/1", "cached", 0);
+
+        TestSubscriber<String> subscriber = run(network("fresh"), CachePolicy.CACHE_THEN_NETWORK);
+
+        subscriber.assertValues("cached", "fresh");
+        subscriber.assertCompleted();
+        assertEquals("fresh", mCache.get("name/1", String.class));
+    }
+
+    @Test
+    public void unchangedNetworkValueIsNotEmittedAgain() {
+        mCache.put("name/1", "same", 0);
+
+        TestSubscriber<String> subscriber = run(network("same"), CachePolicy.CACHE_THEN_NETWORK);
+
+        subscriber.assertValues("same");
+        subscriber.assertCompleted();
+        assertEquals(1, mNetworkCalls.get());
+    }
+
+    @Test
+    public void emptyCacheWaitsForTheNetwork() {
+        TestSubscriber<String> subscriber = run(network("fresh"), CachePolicy.CACHE_THEN_NETWORK);
+
+        subscriber.assertValues("fresh");
+        assertEquals("fresh", mCache.get("name/1", String.class));
+    }
+
+    @Test
+    public void failedRefreshKeepsTheCachedValue() {
+        mCache.put("name/1", "cached", 0);
+
+        TestSubscriber<String> subscriber = run(Observable.<String>error(new IOException("offline")),
+                CachePolicy.CACHE_THEN_NETWORK);
+
+        subscriber.assertValues("cached");
+        subscriber.assertNoErrors();
+        subscriber.assertCompleted();
+    }
+
+    @Test
+    public void failureWithoutCachedValueIsReported() {
+        TestSubscriber<String> subscriber = run(Observable.<String>error(new IOException("offline")),
+                CachePolicy.CACHE_THEN_NETWORK);
+
+        subscriber.assertNoValues();
+        subscriber.assertError(IOException.class);
+    }
+
+    @Test
+    public void networkOnlySkipsTheCacheButUpdatesIt() {
+        mCache.put("name/1", "cached", 0);
+
+        TestSubscriber<String> subscriber = run(network("fresh"), CachePolicy.NETWORK_ONLY);
+
+        subscriber.assertValues("fresh");
+        assertEquals("fresh", mCache.get("name/1", String.class));
+    }
+
+    @Test
+    public void cacheOnlyNeverTouchesTheNetwork() {
+        TestSubscriber<String> subscriber = run(network("fresh"), CachePolicy.CACHE_ONLY);
+
+        subscriber.assertNoValues();
+        subscriber.assertCompleted();
+        assertEquals(0, mNetworkCalls.get());
+    }
+
+    private Observable<String> network(String value) {
+        return Observable.defer(() -> {
+            mNetworkCalls.incrementAndGet();
+            return Observable.just(value);
+        });
+    }
+
+    private TestSubscriber<String> run(Observable<String> network, CachePolicy policy) {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        mRepository.getName(1, policy, network).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static class NameRepository extends CachedRepository {
+
+        NameRepository(EntityCache cache) {
+            super(cache);
+        }
+
+        Observable<String> getName(int id, CachePolicy policy, Observable<String> network) {
+            return load("name/" + id, String.class, 0, policy, network);
+        }
+    }
+
+    /**
+     * Memory only, with the change detection of the real memory tier.
+     */
+    private static class MapEntityCache extends EntityCache {
+
+        private final Map<String, Object> mValues = new HashMap<>();
+
+        MapEntityCache() {
+            super(null);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(String key, Type type) {
+            return (T) mValues.get(key);
+        }
+
+        @Override
+        public boolean put(String key, Object value, long ttlMillis) {
+            return !value.equals(mValues.put(key, value));
+        }
+    }
+}
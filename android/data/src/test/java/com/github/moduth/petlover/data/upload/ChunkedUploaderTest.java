@@ -0,0 +1,183 @@
+package com.github.moduth.petlover.data.upload;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.github.moduth.ext.component.logger.Logger;
+import com.github.moduth.petlover.data.exception.UploadErrorException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChunkedUploaderTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    private MockWebServer mServer;
+    private File mFile;
+    private final MemoryProgressStore mStore = new MemoryProgressStore();
+
+    @Before
+    public void setUp() throws IOException {
+        // keeps the file logger, which needs a device, out of the way
+        Logger.setLevel(Log.ASSERT);
+        mServer = new MockWebServer();
+        mServer.start();
+        mFile = File.createTempFile("upload", ".bin");
+        FileOutputStream out = new FileOutputStream(mFile);
+        try {
+            // 3 chunks: 4 + 4 + 2 bytes
+            out.write("0123456789".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        mFile.delete();
+    }
+
+    @Test
+    public void uploadsEveryChunkThenCompletes() throws Exception {
+        enqueue(200, 200, 200, 200);
+        List<UploadProgress> progress = uploader(0).upload(mFile).toList().toBlocking().single();
+
+        // 0/3 at the start, one per chunk, then 3/3 once completed
+        assertEquals(5, progress.size());
+        assertEquals(0, progress.get(0).getUploadedChunks());
+        assertTrue(progress.get(4).isFinished());
+        assertEquals(4, mServer.getRequestCount());
+        assertEquals("0", chunkIndexOf(mServer.takeRequest()));
+        assertEquals("1", chunkIndexOf(mServer.takeRequest()));
+        assertEquals("2", chunkIndexOf(mServer.takeRequest()));
+        assertEquals(mServer.url("/complete").encodedPath(), mServer.takeRequest().getPath());
+        assertTrue(mStore.mSaved.isEmpty());
+    }
+
+    @Test
+    public void resumesAfterFailure() throws Exception {
+        enqueue(200, 500);
+        try {
+            uploader(0).upload(mFile).toBlocking().last();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof UploadErrorException);
+        }
+        assertEquals("0", chunkIndexOf(mServer.takeRequest()));
+        assertEquals("1", chunkIndexOf(mServer.takeRequest()));
+
+        enqueue(200, 200, 200);
+        UploadProgress last = uploader(0).upload(mFile).toBlocking().last();
+        assertEquals(3, last.getUploadedChunks());
+        // chunk 0 is not sent again
+        assertEquals("1", chunkIndexOf(mServer.takeRequest()));
+        assertEquals("2", chunkIndexOf(mServer.takeRequest()));
+        assertEquals(5, mServer.getRequestCount());
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        enqueue(503, 429, 200, 200, 200, 200);
+        uploader(2).upload(mFile).toBlocking().last();
+        assertEquals(6, mServer.getRequestCount());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        enqueue(400);
+        try {
+            uploader(3).upload(mFile).toBlocking().last();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof UploadErrorException);
+        }
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void classifiesErrors() {
+        assertTrue(ChunkedUploader.isRetryable(new SocketTimeoutException()));
+        assertTrue(ChunkedUploader.isRetryable(new ChunkedUploader.HttpCodeException(408, "u")));
+        assertTrue(ChunkedUploader.isRetryable(new ChunkedUploader.HttpCodeException(429, "u")));
+        assertTrue(ChunkedUploader.isRetryable(new ChunkedUploader.HttpCodeException(502, "u")));
+        assertFalse(ChunkedUploader.isRetryable(new ChunkedUploader.HttpCodeException(404, "u")));
+        assertFalse(ChunkedUploader.isRetryable(new IllegalStateException()));
+    }
+
+    private ChunkedUploader uploader(int maxRetries) {
+        return new ChunkedUploader.Builder()
+                .client(new OkHttpClient())
+                .uploadUrl(mServer.url("/upload").toString())
+                .completeUrl(mServer.url("/complete").toString())
+                .progressStore(mStore)
+                .chunkSize(CHUNK_SIZE)
+                .parallelism(1)
+                .maxRetries(maxRetries)
+                .retryDelay(1)
+                .build();
+    }
+
+    private void enqueue(int... codes) {
+        for (int code : codes) {
+            mServer.enqueue(new MockResponse().setResponseCode(code));
+        }
+    }
+
+    private static String chunkIndexOf(RecordedRequest request) {
+        String body = request.getBody().readUtf8();
+        String marker = "name=\"" + ChunkedUploader.PARAM_CHUNK_INDEX + "\"";
+        int start = body.indexOf("\r\n\r\n", body.indexOf(marker)) + 4;
+        return body.substring(start, body.indexOf("\r\n", start));
+    }
+
+    private static class MemoryProgressStore extends UploadProgressStore {
+        final Map<String, BitSet> mSaved = new HashMap<>();
+
+        MemoryProgressStore() {
+            super((SharedPreferences) null);
+        }
+
+        @Override
+        public synchronized BitSet load(String uploadId, int totalChunks) {
+            BitSet saved = mSaved.get(uploadId);
+            return saved != null ? (BitSet) saved.clone() : new BitSet(totalChunks);
+        }
+
+        @Override
+        public synchronized void markUploaded(String uploadId, int totalChunks, int chunkIndex) {
+            BitSet saved = mSaved.get(uploadId);
+            if (saved == null) {
+                saved = new BitSet(totalChunks);
+                mSaved.put(uploadId, saved);
+            }
+            saved.set(chunkIndex);
+        }
+
+        @Override
+        public synchronized void remove(String uploadId) {
+            mSaved.remove(uploadId);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.domain.interactor;
+
+/**
+ * Where a cached repository read gets its data from. A {@link UseCase} passes it down to the
+ * repository when building its observable, so the same query can paint from cache first on
+ * screen entry and go to the network only on pull-to-refresh.
+ */
+public enum CachePolicy {
+
+    /**
+     * Emits the cached value first if there is one, then the network value once it arrives and
+     * differs. A network failure after a cached value was emitted completes quietly.
+     */
+    CACHE_THEN_NETWORK,
+
+    /**
+     * Emits the network value only, it still refreshes the cache.
+     */
+    NETWORK_ONLY,
+
+    /**
+     * Emits the cached value, or completes empty without touching the network.
+     */
+    CACHE_ONLY
+}
@@ -0,0 +1,92 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.domain.interactor;
+
+import com.github.moduth.petlover.domain.executor.PostExecutionThread;
+import com.github.moduth.petlover.domain.executor.ThreadExecutor;
+
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * {@link UseCase} of a query served by a cached repository. A plain {@link #execute(Subscriber)}
+ * reads with {@link CachePolicy#CACHE_THEN_NETWORK}, so a screen entering paints from cache at once
+ * and is updated when the network answer differs; {@link #refresh(Subscriber)} is for
+ * pull-to-refresh and goes to the network only.
+ * <p>
+ * Queries are idempotent, failed executions are retried by the {@link RetryPolicy}. A coalescing
+ * key, if any, should include {@link #getPolicy()} so a refresh doesn't join a cached read.
+ */
+public abstract class CachedUseCase<T> extends UseCase<T> {
+
+    // read by buildUseCaseObservable(), which runs synchronously inside execute()
+    private CachePolicy mPolicy = CachePolicy.CACHE_THEN_NETWORK;
+
+    protected CachedUseCase(ThreadExecutor threadExecutor, PostExecutionThread postExecutionThread) {
+        super(threadExecutor, postExecutionThread);
+    }
+
+    /**
+     * @param policy to pass on to the repository
+     */
+    protected abstract Observable<T> buildUseCaseObservable(CachePolicy policy);
+
+    @Override
+    protected final Observable<T> buildUseCaseObservable() {
+        return buildUseCaseObservable(mPolicy);
+    }
+
+    /**
+     * @return policy of the execution being built
+     */
+    protected CachePolicy getPolicy() {
+        return mPolicy;
+    }
+
+    @Override
+    protected boolean isIdempotent() {
+        return true;
+    }
+
+    /**
+     * Executes with an explicit policy, such as {@link CachePolicy#CACHE_ONLY} for an offline screen.
+     */
+    public void execute(CachePolicy policy, Subscriber<T> subscriber) {
+        CachePolicy previous = mPolicy;
+        mPolicy = policy;
+        try {
+            execute(subscriber);
+        } finally {
+            mPolicy = previous;
+        }
+    }
+
+    /**
+     * Executes bypassing the cached value, the result still refreshes the cache.
+     */
+    public void refresh(Subscriber<T> subscriber) {
+        execute(CachePolicy.NETWORK_ONLY, subscriber);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.petlover.domain.interactor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+
+/**
+ * Merges concurrent subscriptions to identical requests into a single upstream subscription.
+ * <p>
+ * While an {@link Observable} registered under a key is still in flight, any other caller using
+ * the same key subscribes to it instead of starting its own. The latest item is replayed, so a
+ * caller joining after the result was emitted but before the request completed still receives
+ * it. The key is released as soon as the request terminates or every subscriber has
+ * unsubscribed, so later calls always hit the source again.
+ */
+public class ObservableCoalescer {
+
+    private final ConcurrentHashMap<Object, Observable<?>> mInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key    identity of the request, must implement equals/hashCode.
+     * @param source the actual request, subscribed at most once while in flight.
+     * @return an observable sharing the in-flight request for the key.
+     */
+    public <T> Observable<T> coalesce(Object key, Observable<T> source) {
+        return Observable.defer(() -> {
+            Observable<T> shared = share(key, source);
+            @SuppressWarnings("unchecked")
+            Observable<T> existing = (Observable<T>) mInFlight.putIfAbsent(key, shared);
+            return existing != null ? existing : shared;
+        });
+    }
+
+    /**
+     * @return number of requests currently shared.
+     */
+    public int inFlightCount() {
+        return mInFlight.size();
+    }
+
+    private <T> Observable<T> share(Object key, Observable<T> source) {
+        AtomicReference<Observable<T>> self = new AtomicReference<>();
+        Observable<T> shared = source
+                .doAfterTerminate(() -> mInFlight.remove(key, self.get()))
+                .doOnUnsubscribe(() -> mInFlight.remove(key, self.get()))
+                .replay(1)
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+}
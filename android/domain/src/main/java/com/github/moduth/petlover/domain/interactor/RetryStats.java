@@ -0,0 +1,111 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.moduth.petlover.domain.interactor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by {@link RetryTransformer}, used to tune {@link RetryPolicy} against real traffic.
+ */
+public class RetryStats {
+
+    private static final RetryStats sInstance = new RetryStats();
+
+    private final AtomicLong mRetries = new AtomicLong();
+    private final AtomicLong mRecovered = new AtomicLong();
+    private final AtomicLong mGaveUp = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> mRetriesByError = new ConcurrentHashMap<>();
+
+    public static RetryStats getInstance() {
+        return sInstance;
+    }
+
+    void onRetry(Throwable error) {
+        mRetries.incrementAndGet();
+        String name = error.getClass().getSimpleName();
+        AtomicLong counter = mRetriesByError.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = mRetriesByError.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    void onRecovered() {
+        mRecovered.incrementAndGet();
+    }
+
+    void onGaveUp() {
+        mGaveUp.incrementAndGet();
+    }
+
+    /**
+     * @return total number of retries issued.
+     */
+    public long getRetryCount() {
+        return mRetries.get();
+    }
+
+    /**
+     * @return number of executions that succeeded after at least one retry.
+     */
+    public long getRecoveredCount() {
+        return mRecovered.get();
+    }
+
+    /**
+     * @return number of executions that failed although they were retried.
+     */
+    public long getGaveUpCount() {
+        return mGaveUp.get();
+    }
+
+    /**
+     * @param errorName simple class name of the failure.
+     * @return number of retries caused by that failure type.
+     */
+    public long getRetryCount(String errorName) {
+        AtomicLong counter = mRetriesByError.get(errorName);
+        return counter != null ? counter.get() : 0;
+    }
+
+    public void reset() {
+        mRetries.set(0);
+        mRecovered.set(0);
+        mGaveUp.set(0);
+        mRetriesByError.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats{retries=" + mRetries.get()
+                + ", recovered=" + mRecovered.get()
+                + ", gaveUp=" + mGaveUp.get()
+                + ", byError=" + mRetriesByError + "}";
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.moduth.petlover.domain.interactor;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+
+/**
+ * Re-subscribes the upstream according to a {@link RetryPolicy} and reports to {@link RetryStats}.
+ * Only apply it to idempotent requests, a retried call may reach the server more than once.
+ * <p>
+ * The retry delay runs on the given scheduler, which is also where the upstream is re-subscribed,
+ * so pass the scheduler the request normally runs on rather than a computation one.
+ */
+public class RetryTransformer<T> implements Observable.Transformer<T, T> {
+
+    private final RetryPolicy mPolicy;
+    private final RetryStats mStats;
+    private final Scheduler mScheduler;
+
+    /**
+     * @param scheduler where retries wait and re-subscribe, such as the use case's executor.
+     */
+    public RetryTransformer(RetryPolicy policy, Scheduler scheduler) {
+        this(policy, RetryStats.getInstance(), scheduler);
+    }
+
+    public RetryTransformer(RetryPolicy policy, RetryStats stats, Scheduler scheduler) {
+        mPolicy = policy;
+        mStats = stats;
+        mScheduler = scheduler;
+    }
+
+    @Override
+    public Observable<T> call(Observable<T> source) {
+        return Observable.defer(() -> {
+            int[] attempt = {0};
+            return source
+                    .retryWhen(errors -> errors.flatMap(error -> {
+                        long delay = mPolicy.getRetryDelay(error, attempt[0] + 1);
+                        if (delay < 0) {
+                            if (attempt[0] > 0) {
+                                mStats.onGaveUp();
+                            }
+                            return Observable.<Long>error(error);
+                        }
+                        attempt[0]++;
+                        mStats.onRetry(error);
+                        return Observable.timer(delay, TimeUnit.MILLISECONDS, mScheduler);
+                    }))
+                    .doOnCompleted(() -> {
+                        if (attempt[0] > 0) {
+                            mStats.onRecovered();
+                        }
+                    });
+        });
+    }
+}
@@ -25,13 +25,20 @@ package com.github.moduth.petlover.domain.interactor;
 
 
 import com.github.moduth.petlover.domain.executor.PostExecutionThread;
+import com.github.moduth.petlover.domain.executor.Priority;
+import com.github.moduth.petlover.domain.executor.PriorityThreadExecutor;
 import com.github.moduth.petlover.domain.executor.ThreadExecutor;
 
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
 import rx.Observable;
 import rx.Observer;
+import rx.Scheduler;
 import rx.Subscriber;
-import rx.Subscription;
+import rx.observers.Subscribers;
 import rx.schedulers.Schedulers;
+import rx.subscriptions.CompositeSubscription;
 import rx.subscriptions.Subscriptions;
 
 /**
@@ -44,11 +51,16 @@ import rx.subscriptions.Subscriptions;
  */
 public abstract class UseCase<T> {
 
+    private static final ObservableCoalescer sCoalescer = new ObservableCoalescer();
+
+    private static volatile RetryPolicy sRetryPolicy;
+
     protected final ThreadExecutor threadExecutor;
     protected final PostExecutionThread postExecutionThread;
     protected Observer<T> mObserver;
 
-    private Subscription subscription = Subscriptions.empty();
+    // every in-flight execution, removed again when it terminates
+    private final CompositeSubscription subscriptions = new CompositeSubscription();
 
     protected UseCase(ThreadExecutor threadExecutor,
                       PostExecutionThread postExecutionThread) {
@@ -62,14 +74,81 @@ public abstract class UseCase<T> {
     protected abstract Observable<T> buildUseCaseObservable();
 
     /**
-     * Executes the current use case.
+     * Key identifying the request built by {@link #buildUseCaseObservable()}. Concurrent executions
+     * of the same {@link UseCase} type with equal keys share a single request and result.
+     * A caller joining late receives the latest item already emitted, such as the cached value of
+     * {@link CachePolicy#CACHE_THEN_NETWORK}, and everything after it.
+     *
+     * @return request key such as the query parameters, or null (default) to disable coalescing.
+     */
+    protected Object getCoalescingKey() {
+        return null;
+    }
+
+    /**
+     * Sets the policy used to retry failed executions of idempotent use cases.
+     *
+     * @param retryPolicy policy, or null to disable retries.
+     */
+    public static void setRetryPolicy(RetryPolicy retryPolicy) {
+        sRetryPolicy = retryPolicy;
+    }
+
+    /**
+     * Whether executing this use case more than once is harmless, such as a plain query.
+     * Only idempotent use cases are retried by the {@link RetryPolicy}.
+     *
+     * @return false by default.
+     */
+    protected boolean isIdempotent() {
+        return false;
+    }
+
+    /**
+     * Lane this use case is scheduled on when the executor supports priorities.
+     *
+     * @return {@link Priority#INTERACTIVE} by default.
+     */
+    protected Priority getPriority() {
+        return Priority.INTERACTIVE;
+    }
+
+    private Executor getExecutor() {
+        if (threadExecutor instanceof PriorityThreadExecutor) {
+            return ((PriorityThreadExecutor) threadExecutor).forPriority(getPriority());
+        }
+        return threadExecutor;
+    }
+
+    /**
+     * @param scheduler the lane this execution runs on, retries are re-subscribed on it as well.
+     */
+    private Observable<T> buildObservable(Scheduler scheduler) {
+        Observable<T> observable = buildUseCaseObservable();
+        RetryPolicy retryPolicy = sRetryPolicy;
+        if (retryPolicy != null && isIdempotent()) {
+            observable = observable.compose(new RetryTransformer<>(retryPolicy, scheduler));
+        }
+        Object key = getCoalescingKey();
+        if (key == null) {
+            return observable;
+        }
+        return sCoalescer.coalesce(Arrays.asList(getClass(), key), observable);
+    }
+
+    /**
+     * Executes the current use case. Previous executions keep running until they terminate or
+     * {@link #unsubscribe()} is called.
      *
      * @param UseCaseSubscriber The guy who will be listen to the observable build
      *                          with {@link #buildUseCaseObservable()}.
      */
     public void execute(Subscriber<T> UseCaseSubscriber) {
-        subscription = buildUseCaseObservable()
-                .subscribeOn(Schedulers.from(threadExecutor))
+        subscriptions.add(UseCaseSubscriber);
+        UseCaseSubscriber.add(Subscriptions.create(() -> subscriptions.remove(UseCaseSubscriber)));
+        Scheduler scheduler = Schedulers.from(getExecutor());
+        buildObservable(scheduler)
+                .subscribeOn(scheduler)
                 .observeOn(postExecutionThread.getScheduler())
                 .subscribe(UseCaseSubscriber);
     }
@@ -81,19 +160,15 @@ public abstract class UseCase<T> {
      *                          with {@link #buildUseCaseObservable()}.
      */
     public void execute(Observer<T> useCaseObserver) {
-        subscription = buildUseCaseObservable()
-                .subscribeOn(Schedulers.from(threadExecutor))
-                .observeOn(postExecutionThread.getScheduler())
-                .subscribe(useCaseObserver);
+        execute(Subscribers.from(useCaseObserver));
     }
 
     /**
-     * Un-subscribes from current {@link Subscription}.
+     * Un-subscribes from every execution still in flight. The unsubscription travels up the chain,
+     * so the underlying HTTP call is cancelled as well. The use case can be executed again afterwards.
      */
     public void unsubscribe() {
-        if (!subscription.isUnsubscribed()) {
-            subscription.unsubscribe();
-        }
+        subscriptions.clear();
         if (mObserver != null) {
             mObserver = null;
         }
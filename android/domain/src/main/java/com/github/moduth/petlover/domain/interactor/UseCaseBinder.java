@@ -0,0 +1,57 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 Moduth (https://github.com/moduth)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.moduth.petlover.domain.interactor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the {@link UseCase}s owned by a screen so that all of them can be cancelled together
+ * when the screen is destroyed.
+ */
+public class UseCaseBinder {
+
+    private final List<UseCase<?>> mUseCases = new ArrayList<>();
+
+    /**
+     * @param useCase use case owned by the screen.
+     * @return the same use case, for chaining.
+     */
+    public <U extends UseCase<?>> U bind(U useCase) {
+        if (!mUseCases.contains(useCase)) {
+            mUseCases.add(useCase);
+        }
+        return useCase;
+    }
+
+    /**
+     * Un-subscribes every bound use case, cancelling their in-flight requests.
+     */
+    public void unsubscribeAll() {
+        for (UseCase<?> useCase : mUseCases) {
+            useCase.unsubscribe();
+        }
+        mUseCases.clear();
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.moduth.petlover.domain.interactor;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+
+public class ObservableCoalescerTest {
+
+    private final ObservableCoalescer mCoalescer = new ObservableCoalescer();
+    private final PublishSubject<String> mSource = PublishSubject.create();
+    private final AtomicInteger mSubscriptions = new AtomicInteger();
+
+    private Observable<String> request(Object key) {
+        return mCoalescer.coalesce(key, mSource.doOnSubscribe(mSubscriptions::incrementAndGet));
+    }
+
+    @Test
+    public void concurrentCallersShareOneSubscription() {
+        TestSubscriber<String> first = new TestSubscriber<>();
+        TestSubscriber<String> second = new TestSubscriber<>();
+        request("a").subscribe(first);
+        request("a").subscribe(second);
+
+        mSource.onNext("result");
+        mSource.onCompleted();
+
+        assertEquals(1, mSubscriptions.get());
+        first.assertValue("result");
+        second.assertValue("result");
+        second.assertCompleted();
+        assertEquals(0, mCoalescer.inFlightCount());
+    }
+
+    @Test
+    public void lateJoinerReceivesEmittedResult() {
+        TestSubscriber<String> first = new TestSubscriber<>();
+        request("a").subscribe(first);
+        mSource.onNext("cached");
+
+        TestSubscriber<String> late = new TestSubscriber<>();
+        request("a").subscribe(late);
+        late.assertValue("cached");
+
+        mSource.onNext("fresh");
+        mSource.onCompleted();
+        late.assertValues("cached", "fresh");
+        late.assertCompleted();
+        assertEquals(1, mSubscriptions.get());
+    }
+
+    @Test
+    public void differentKeysAreNotShared() {
+        request("a").subscribe(new TestSubscriber<>());
+        request("b").subscribe(new TestSubscriber<>());
+        assertEquals(2, mSubscriptions.get());
+        assertEquals(2, mCoalescer.inFlightCount());
+    }
+
+    @Test
+    public void keyReleasedAfterTermination() {
+        TestSubscriber<String> first = new TestSubscriber<>();
+        request("a").subscribe(first);
+        mSource.onNext("one");
+        mSource.onCompleted();
+
+        Observable<String> again = mCoalescer.coalesce("a", Observable.just("two"));
+        TestSubscriber<String> second = new TestSubscriber<>();
+        again.subscribe(second);
+        second.assertValue("two");
+    }
+
+    @Test
+    public void keyReleasedWhenEveryoneUnsubscribes() {
+        Subscription first = request("a").subscribe(new TestSubscriber<>());
+        Subscription second = request("a").subscribe(new TestSubscriber<>());
+        first.unsubscribe();
+        assertEquals(1, mCoalescer.inFlightCount());
+        second.unsubscribe();
+        assertEquals(0, mCoalescer.inFlightCount());
+    }
+
+    @Test
+    public void errorReachesEverySubscriber() {
+        TestSubscriber<String> first = new TestSubscriber<>();
+        TestSubscriber<String> second = new TestSubscriber<>();
+        request("a").subscribe(first);
+        request("a").subscribe(second);
+        mSource.onError(new IllegalStateException());
+        first.assertError(IllegalStateException.class);
+        second.assertError(IllegalStateException.class);
+        assertEquals(0, mCoalescer.inFlightCount());
+    }
+}
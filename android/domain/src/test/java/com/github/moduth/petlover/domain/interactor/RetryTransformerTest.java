@@ -0,0 +1,101 @@
+package com.github.moduth.petlover.domain.interactor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetryTransformerTest {
+
+    private static final long DELAY_MS = 100;
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final RetryStats mStats = new RetryStats();
+    private final AtomicInteger mSubscriptions = new AtomicInteger();
+
+    /**
+     * Retries IOExceptions up to {@code maxRetries} times, anything else never.
+     */
+    private static RetryPolicy ioPolicy(int maxRetries) {
+        return (error, attempt) -> error instanceof IOException && attempt <= maxRetries
+                ? DELAY_MS : RetryPolicy.NO_RETRY;
+    }
+
+    /**
+     * Fails with {@code error} the first {@code failures} times, then emits "ok".
+     */
+    private Observable<String> failing(int failures, Throwable error) {
+        return Observable.defer(() -> mSubscriptions.incrementAndGet() <= failures
+                ? Observable.<String>error(error) : Observable.just("ok"));
+    }
+
+    @Test
+    public void retriesOnTheGivenScheduler() {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        failing(2, new IOException())
+                .compose(new RetryTransformer<>(ioPolicy(3), mStats, mScheduler))
+                .subscribe(subscriber);
+
+        assertEquals(1, mSubscriptions.get());
+        mScheduler.advanceTimeBy(DELAY_MS, TimeUnit.MILLISECONDS);
+        assertEquals(2, mSubscriptions.get());
+        mScheduler.advanceTimeBy(DELAY_MS, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue("ok");
+        subscriber.assertCompleted();
+        assertEquals(2, mStats.getRetryCount());
+        assertEquals(2, mStats.getRetryCount("IOException"));
+        assertEquals(1, mStats.getRecoveredCount());
+    }
+
+    @Test
+    public void givesUpWhenThePolicySaysSo() {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        failing(5, new IOException())
+                .compose(new RetryTransformer<>(ioPolicy(1), mStats, mScheduler))
+                .subscribe(subscriber);
+        mScheduler.advanceTimeBy(DELAY_MS * 10, TimeUnit.MILLISECONDS);
+
+        subscriber.assertError(IOException.class);
+        assertEquals(2, mSubscriptions.get());
+        assertEquals(1, mStats.getGaveUpCount());
+        assertEquals(0, mStats.getRecoveredCount());
+    }
+
+    @Test
+    public void doesNotRetryPermanentErrors() {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        failing(1, new IllegalStateException())
+                .compose(new RetryTransformer<>(ioPolicy(3), mStats, mScheduler))
+                .subscribe(subscriber);
+
+        subscriber.assertError(IllegalStateException.class);
+        assertEquals(1, mSubscriptions.get());
+        assertEquals(0, mStats.getRetryCount());
+        // never retried, so it does not count as given up either
+        assertEquals(0, mStats.getGaveUpCount());
+    }
+
+    @Test
+    public void attemptsStartOverForEachSubscription() {
+        Observable<String> retried = failing(1, new IOException())
+                .compose(new RetryTransformer<>(ioPolicy(1), mStats, mScheduler));
+        TestSubscriber<String> first = new TestSubscriber<>();
+        retried.subscribe(first);
+        mScheduler.advanceTimeBy(DELAY_MS, TimeUnit.MILLISECONDS);
+        first.assertValue("ok");
+
+        mSubscriptions.set(0);
+        TestSubscriber<String> second = new TestSubscriber<>();
+        retried.subscribe(second);
+        mScheduler.advanceTimeBy(DELAY_MS, TimeUnit.MILLISECONDS);
+        second.assertValue("ok");
+    }
+}
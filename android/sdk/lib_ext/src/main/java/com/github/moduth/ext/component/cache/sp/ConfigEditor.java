@@ -0,0 +1,107 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.cache.sp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Batch of changes to one namespace, see {@link ConfigManager#edit(String)}.
+ * <p/>
+ * <pre>
+ * ConfigManager.edit(ConfigManager.KEY_ACCOUNT)
+ *         .putString("uid", uid)
+ *         .putString("token", token)
+ *         .apply();
+ * </pre>
+ * 所有修改在 apply()/commit() 时一次性提交，只产生一次写入。
+ */
+public final class ConfigEditor {
+
+    private final String mNamespace;
+    private final Map<String, Object> mChanges = new HashMap<>();
+    private boolean mClear;
+
+    ConfigEditor(String namespace) {
+        mNamespace = namespace;
+    }
+
+    public ConfigEditor putString(String key, String value) {
+        return set(key, value);
+    }
+
+    public ConfigEditor putBoolean(String key, boolean value) {
+        return set(key, value);
+    }
+
+    public ConfigEditor putInt(String key, int value) {
+        return set(key, value);
+    }
+
+    public ConfigEditor putLong(String key, long value) {
+        return set(key, value);
+    }
+
+    public ConfigEditor putFloat(String key, float value) {
+        return set(key, value);
+    }
+
+    public ConfigEditor remove(String key) {
+        mChanges.put(key, WriteCoalescer.REMOVED);
+        return this;
+    }
+
+    /**
+     * Removes everything in the namespace before the other changes of this batch.
+     */
+    public ConfigEditor clear() {
+        mClear = true;
+        mChanges.clear();
+        return this;
+    }
+
+    /**
+     * Visible to reads at once, written together with other writes of the next
+     * {@link WriteCoalescer#WINDOW_MS} ms.
+     */
+    public void apply() {
+        ConfigManager.sWriter.merge(mNamespace, mChanges, mClear);
+    }
+
+    /**
+     * Writes the batch synchronously.
+     *
+     * @return false if it couldn't be written
+     */
+    public boolean commit() {
+        ConfigManager.sWriter.merge(mNamespace, mChanges, mClear);
+        return ConfigManager.sWriter.flush(mNamespace, true);
+    }
+
+    private ConfigEditor set(String key, Object value) {
+        mChanges.put(key, value != null ? value : WriteCoalescer.REMOVED);
+        return this;
+    }
+}
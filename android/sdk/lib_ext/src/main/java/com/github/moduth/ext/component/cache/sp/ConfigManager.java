@@ -3,19 +3,44 @@ package com.github.moduth.ext.component.cache.sp;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Build;
-
-import java.util.HashMap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * 内部设置管理
+ * <p/>
+ * 数据存放在 files/kv/ 下的内存映射文件中（见 {@link MappedPreferences}），写入只是一次内存追加；
+ * 第一次打开时从同名的 SharedPreferences 迁移，映射失败时退回系统实现。
+ * <p/>
+ * 每个命名空间只加载一次：{@link #preload(String...)} 在后台线程并行加载，
+ * 加载完成前调用的线程等待同一个加载任务，不会重复读盘。
+ * <p/>
+ * 异步写入在 {@link WriteCoalescer} 中合并，一个短时间窗口内的多次put只写一次；
+ * 多个相关的值用 {@link #edit(String)} 批量提交。
  *
  * @author markzhai on 2015/8/4.
  */
 public class ConfigManager {
 
-    private static HashMap<String, SharedPreferences> sPreferencesMap = new HashMap<>();
-    private static boolean sAsyncSupport = true;
-    private static Context sContext;
+    private static final String TAG = "ConfigManager";
+    private static final String KV_DIR = "kv";
+    private static final String KV_SUFFIX = ".kv";
+
+    private static final ConcurrentHashMap<String, FutureTask<SharedPreferences>> sPreferencesMap =
+            new ConcurrentHashMap<>();
+    private static volatile boolean sAsyncSupport = true;
+    private static volatile Context sContext;
+
+    static final WriteCoalescer sWriter = new WriteCoalescer();
 
     /**
      * 程序用全局设置
@@ -33,6 +58,16 @@ public class ConfigManager {
 
     public static final String KEY_ADV = "em_adv";
 
+    /**
+     * 日志限流、采样配置，见 LogFilter
+     */
+    public static final String KEY_LOGGER = "logger";
+
+    /**
+     * 加密存放的用户凭证，只通过 CredentialStore 读写
+     */
+    public static final String KEY_SECURE = "secure";
+
     public class ADV {
         public static final String SP_STARTUP_ADV_ID = "startupAdId";
         public static final String SP_STARTUP_ADV_TIME = "startupAdShowTime";
@@ -72,20 +107,62 @@ public class ConfigManager {
         sAsyncSupport = Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD;
     }
 
+    static Context getContext() {
+        return sContext;
+    }
+
+    /**
+     * 在后台线程并行加载常用的命名空间，在 {@link #init(Context)} 之后尽早调用
+     *
+     * @param preferencesKeys such as {@link #KEY_APPLICATION}, {@link #KEY_ACCOUNT}
+     */
+    public static void preload(String... preferencesKeys) {
+        if (preferencesKeys.length == 0) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(preferencesKeys.length, 3),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "config-preload");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        for (String key : preferencesKeys) {
+            FutureTask<SharedPreferences> task = newLoadTask(key);
+            if (sPreferencesMap.putIfAbsent(key, task) == null) {
+                executor.execute(task);
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * 对一个命名空间做批量修改，apply()/commit() 时一次写入
+     */
+    public static ConfigEditor edit(String preferencesKey) {
+        return new ConfigEditor(preferencesKey);
+    }
+
+    static boolean isAsyncSupported() {
+        return sAsyncSupport;
+    }
+
     public static boolean contains(String key) {
         return contains(key, KEY_APPLICATION);
     }
 
     public static boolean contains(String key, String preferencesKey) {
+        Object pending = sWriter.peek(preferencesKey, key);
+        if (pending != null) {
+            return pending != WriteCoalescer.REMOVED;
+        }
         return getPreferences(preferencesKey).contains(key);
     }
 
     public static void clear(String preferencesKey) {
-        if (sAsyncSupport) {
-            getPreferences(preferencesKey).edit().clear().apply();
-        } else {
-            getPreferences(preferencesKey).edit().clear().commit();
-        }
+        edit(preferencesKey).clear().apply();
     }
 
     public static void remove(String key) {
@@ -93,7 +170,7 @@ public class ConfigManager {
     }
 
     public static void remove(String key, String preferencesKey) {
-        getPreferences(preferencesKey).edit().remove(key).commit();
+        sWriter.put(preferencesKey, key, WriteCoalescer.REMOVED);
     }
 
     public static String getString(String key) {
@@ -105,6 +182,10 @@ public class ConfigManager {
     }
 
     public static String getString(String key, String defaultValue, String preferencesKey) {
+        Object pending = sWriter.peek(preferencesKey, key);
+        if (pending != null) {
+            return pending != WriteCoalescer.REMOVED ? (String) pending : defaultValue;
+        }
         return getPreferences(preferencesKey).getString(key, defaultValue);
     }
 
@@ -113,6 +194,10 @@ public class ConfigManager {
     }
 
     public static boolean getBoolean(String key, boolean defaultValue, String preferencesKey) {
+        Object pending = sWriter.peek(preferencesKey, key);
+        if (pending != null) {
+            return pending != WriteCoalescer.REMOVED ? (Boolean) pending : defaultValue;
+        }
         return getPreferences(preferencesKey).getBoolean(key, defaultValue);
     }
 
@@ -121,6 +206,10 @@ public class ConfigManager {
     }
 
     public static int getInt(String key, int defaultValue, String preferencesKey) {
+        Object pending = sWriter.peek(preferencesKey, key);
+        if (pending != null) {
+            return pending != WriteCoalescer.REMOVED ? (Integer) pending : defaultValue;
+        }
         return getPreferences(preferencesKey).getInt(key, defaultValue);
     }
 
@@ -129,6 +218,10 @@ public class ConfigManager {
     }
 
     public static long getLong(String key, long defaultValue, String preferencesKey) {
+        Object pending = sWriter.peek(preferencesKey, key);
+        if (pending != null) {
+            return pending != WriteCoalescer.REMOVED ? (Long) pending : defaultValue;
+        }
         return getPreferences(preferencesKey).getLong(key, defaultValue);
     }
 
@@ -137,6 +230,10 @@ public class ConfigManager {
     }
 
     public static float getFloat(String key, float defaultValue, String preferencesKey) {
+        Object pending = sWriter.peek(preferencesKey, key);
+        if (pending != null) {
+            return pending != WriteCoalescer.REMOVED ? (Float) pending : defaultValue;
+        }
         return getPreferences(preferencesKey).getFloat(key, defaultValue);
     }
 
@@ -149,11 +246,7 @@ public class ConfigManager {
     }
 
     public static void putString(String key, String value, String preferencesKey, boolean async) {
-        if (async && sAsyncSupport) {
-            getPreferences(preferencesKey).edit().putString(key, value).apply();
-        } else {
-            getPreferences(preferencesKey).edit().putString(key, value).commit();
-        }
+        put(key, value, preferencesKey, async);
     }
 
     public static void putBoolean(String key, boolean value) {
@@ -165,11 +258,7 @@ public class ConfigManager {
     }
 
     public static void putBoolean(String key, boolean value, String preferencesKey, boolean async) {
-        if (async && sAsyncSupport) {
-            getPreferences(preferencesKey).edit().putBoolean(key, value).apply();
-        } else {
-            getPreferences(preferencesKey).edit().putBoolean(key, value).commit();
-        }
+        put(key, value, preferencesKey, async);
     }
 
     public static void putInt(String key, int value) {
@@ -181,11 +270,7 @@ public class ConfigManager {
     }
 
     public static void putInt(String key, int value, String preferencesKey, boolean async) {
-        if (async && sAsyncSupport) {
-            getPreferences(preferencesKey).edit().putInt(key, value).apply();
-        } else {
-            getPreferences(preferencesKey).edit().putInt(key, value).commit();
-        }
+        put(key, value, preferencesKey, async);
     }
 
     public static void putLong(String key, long value) {
@@ -197,11 +282,7 @@ public class ConfigManager {
     }
 
     public static void putLong(String key, long value, String preferencesKey, boolean async) {
-        if (async && sAsyncSupport) {
-            getPreferences(preferencesKey).edit().putLong(key, value).apply();
-        } else {
-            getPreferences(preferencesKey).edit().putLong(key, value).commit();
-        }
+        put(key, value, preferencesKey, async);
     }
 
     public static void putFloat(String key, float value) {
@@ -213,15 +294,21 @@ public class ConfigManager {
     }
 
     public static void putFloat(String key, float value, String preferencesKey, boolean async) {
-        if (async && sAsyncSupport) {
-            getPreferences(preferencesKey).edit().putFloat(key, value).apply();
-        } else {
-            getPreferences(preferencesKey).edit().putFloat(key, value).commit();
+        put(key, value, preferencesKey, async);
+    }
+
+    /**
+     * async的写入合并到下一次批量写出，否则连同积压的修改立即同步写出
+     */
+    private static void put(String key, Object value, String preferencesKey, boolean async) {
+        sWriter.put(preferencesKey, key, value != null ? value : WriteCoalescer.REMOVED);
+        if (!async) {
+            sWriter.flush(preferencesKey, true);
         }
     }
 
     public static void clearLoginStatus() {
-        sPreferencesMap.get(KEY_APPLICATION).edit()
+        edit(KEY_APPLICATION)
                 .putString("BindMob", "")
                 .putString("PassUsrPswd", "")
                 .putBoolean("PassAuLoginFlag", false)
@@ -253,16 +340,67 @@ public class ConfigManager {
                 .putString("sina", "")
                 .putString("weixin", "")
                 .putBoolean("loginState", true)
-                .putString("sid", "").commit();
+                .putString("sid", "")
+                .apply();
     }
 
+    /**
+     * 未预加载的命名空间在调用线程加载，正在加载的则等待其完成；加载失败的任务会被移除，下次调用重新加载
+     */
     public static SharedPreferences getPreferences(String key) {
-        if (sPreferencesMap.containsKey(key)) {
-            return sPreferencesMap.get(key);
-        } else {
-            SharedPreferences preferences = sContext.getSharedPreferences(key, Context.MODE_PRIVATE);
-            sPreferencesMap.put(key, preferences);
-            return preferences;
+        FutureTask<SharedPreferences> task = sPreferencesMap.get(key);
+        if (task == null) {
+            FutureTask<SharedPreferences> created = newLoadTask(key);
+            task = sPreferencesMap.putIfAbsent(key, created);
+            if (task == null) {
+                task = created;
+                task.run();
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // don't cache the failure, the next call loads again
+                    sPreferencesMap.remove(key, task);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException("can't load " + key, cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static FutureTask<SharedPreferences> newLoadTask(final String key) {
+        return new FutureTask<>(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() {
+                return openPreferences(key);
+            }
+        });
+    }
+
+    private static SharedPreferences openPreferences(String key) {
+        SharedPreferences legacy = sContext.getSharedPreferences(key, Context.MODE_PRIVATE);
+        File dir = new File(sContext.getFilesDir(), KV_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return legacy;
+        }
+        try {
+            return new MappedPreferences(new File(dir, key + KV_SUFFIX), legacy);
+        } catch (IOException e) {
+            Log.w(TAG, "can't map " + key + ", fall back to SharedPreferences", e);
+            return legacy;
         }
     }
 }
\ No newline at end of file
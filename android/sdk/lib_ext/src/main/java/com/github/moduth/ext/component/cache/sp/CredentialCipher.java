@@ -0,0 +1,250 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.cache.sp;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES/GCM with one key for {@link CredentialStore}.
+ * <p/>
+ * 输出为 version, iv, 然后是 (key长度, key, value) 的密文和tag。明文前带上key名，
+ * 密文被篡改或挪到别的key下都会解密失败（updateAAD 需要 API 19，所以不用它）。
+ * Cipher 实例按线程缓存，每次只需用新的IV重新init。
+ */
+final class CredentialCipher {
+
+    /**
+     * AES key derived from a random master secret in the app's private files
+     */
+    static final byte VERSION_FILE_KEY = 1;
+    /**
+     * AES key generated inside AndroidKeyStore, it never leaves the key store
+     */
+    static final byte VERSION_KEY_STORE = 2;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String ANDROID_KEY_STORE = "AndroidKeyStore";
+    private static final String KEY_STORE_ALIAS = "petlover-credential";
+    private static final byte[] KEY_INFO = "petlover-credential-v1".getBytes(Charset.forName("UTF-8"));
+    private static final int SECRET_SIZE = 32;
+    private static final int IV_SIZE = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final SecureRandom sRandom = new SecureRandom();
+
+    private final byte mVersion;
+    private final SecretKey mKey;
+    private final boolean mGcmSpec;
+
+    private final ThreadLocal<Cipher> mCipher = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            try {
+                return Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(TRANSFORMATION + " not available", e);
+            }
+        }
+    };
+
+    /**
+     * @param gcmSpec pass the nonce as a GCMParameterSpec, which is API 19
+     */
+    CredentialCipher(byte version, SecretKey key, boolean gcmSpec) {
+        mVersion = version;
+        mKey = key;
+        mGcmSpec = gcmSpec;
+    }
+
+    /**
+     * @param secretFile master secret, created on first use
+     */
+    static CredentialCipher fromFile(File secretFile, boolean gcmSpec) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(loadSecret(secretFile), "HmacSHA256"));
+        return new CredentialCipher(VERSION_FILE_KEY, new SecretKeySpec(mac.doFinal(KEY_INFO), "AES"), gcmSpec);
+    }
+
+    /**
+     * Loads the AES key of AndroidKeyStore, generating it on first use.
+     */
+    @TargetApi(Build.VERSION_CODES.M)
+    static CredentialCipher fromKeyStore() throws GeneralSecurityException {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
+            keyStore.load(null);
+            SecretKey key = (SecretKey) keyStore.getKey(KEY_STORE_ALIAS, null);
+            if (key == null) {
+                KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, ANDROID_KEY_STORE);
+                generator.init(new KeyGenParameterSpec.Builder(KEY_STORE_ALIAS,
+                        KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                        .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                        .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                        .setKeySize(256)
+                        .build());
+                key = generator.generateKey();
+            }
+            return new CredentialCipher(VERSION_KEY_STORE, key, true);
+        } catch (IOException e) {
+            throw new GeneralSecurityException("can't load " + ANDROID_KEY_STORE, e);
+        }
+    }
+
+    byte getVersion() {
+        return mVersion;
+    }
+
+    byte[] encrypt(String key, String value) throws GeneralSecurityException {
+        byte[] keyBytes = key.getBytes(UTF_8);
+        byte[] valueBytes = value.getBytes(UTF_8);
+        byte[] plain = ByteBuffer.allocate(2 + keyBytes.length + valueBytes.length)
+                .putShort((short) keyBytes.length).put(keyBytes).put(valueBytes).array();
+        Cipher cipher = mCipher.get();
+        byte[] iv;
+        if (mVersion == VERSION_KEY_STORE) {
+            // AndroidKeyStore picks the nonce itself
+            cipher.init(Cipher.ENCRYPT_MODE, mKey);
+            iv = cipher.getIV();
+            if (iv == null || iv.length != IV_SIZE) {
+                throw new GeneralSecurityException("unexpected iv from " + cipher.getProvider());
+            }
+        } else {
+            iv = new byte[IV_SIZE];
+            sRandom.nextBytes(iv);
+            cipher.init(Cipher.ENCRYPT_MODE, mKey, spec(iv));
+        }
+        byte[] out = new byte[1 + IV_SIZE + cipher.getOutputSize(plain.length)];
+        out[0] = mVersion;
+        System.arraycopy(iv, 0, out, 1, IV_SIZE);
+        int length = 1 + IV_SIZE + cipher.doFinal(plain, 0, plain.length, out, 1 + IV_SIZE);
+        if (length < out.length) {
+            byte[] trimmed = new byte[length];
+            System.arraycopy(out, 0, trimmed, 0, length);
+            return trimmed;
+        }
+        return out;
+    }
+
+    /**
+     * @return null if data was encrypted by another version, tampered with, or belongs to another key
+     */
+    String decrypt(String key, byte[] data) {
+        if (data == null || data.length < 1 + IV_SIZE || data[0] != mVersion) {
+            return null;
+        }
+        try {
+            byte[] iv = new byte[IV_SIZE];
+            System.arraycopy(data, 1, iv, 0, IV_SIZE);
+            Cipher cipher = mCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, mKey, spec(iv));
+            ByteBuffer plain = ByteBuffer.wrap(cipher.doFinal(data, 1 + IV_SIZE, data.length - 1 - IV_SIZE));
+            byte[] keyBytes = new byte[plain.getShort() & 0xffff];
+            plain.get(keyBytes);
+            if (!key.equals(new String(keyBytes, UTF_8))) {
+                // stored under another key
+                return null;
+            }
+            return new String(plain.array(), plain.position(), plain.remaining(), UTF_8);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private AlgorithmParameterSpec spec(byte[] iv) {
+        if (mGcmSpec) {
+            return new GCMParameterSpec(TAG_BITS, iv);
+        }
+        // older providers take the nonce as an IvParameterSpec
+        return new IvParameterSpec(iv);
+    }
+
+    /**
+     * Random master secret in the app's private files, created on first use.
+     */
+    private static byte[] loadSecret(File file) throws GeneralSecurityException {
+        byte[] secret = new byte[SECRET_SIZE];
+        try {
+            if (file.length() == SECRET_SIZE) {
+                InputStream in = new FileInputStream(file);
+                try {
+                    int read = 0;
+                    while (read < SECRET_SIZE) {
+                        int n = in.read(secret, read, SECRET_SIZE - read);
+                        if (n < 0) {
+                            throw new IOException("short read " + file);
+                        }
+                        read += n;
+                    }
+                } finally {
+                    in.close();
+                }
+                return secret;
+            }
+            sRandom.nextBytes(secret);
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("can't create " + dir);
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(secret);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("can't create " + file);
+            }
+            return secret;
+        } catch (IOException e) {
+            throw new GeneralSecurityException("can't load the credential key", e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.moduth.ext.component.cache.sp;
+
+import android.os.Build;
+import android.util.Base64;
+
+import java.io.File;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encrypted-at-rest storage for credentials such as the auth token, on top of {@link ConfigManager}.
+ * <p/>
+ * 值用 {@link CredentialCipher} 加密后以Base64存放在 {@link ConfigManager#KEY_SECURE}。
+ * <ul>
+ * <li>API 23 及以上密钥在 AndroidKeyStore 中生成，不离开系统密钥库</li>
+ * <li>更老的设备（或密钥库不可用时）退回到应用私有目录中的随机主密钥，
+ * 用 HMAC-SHA256 派生出AES密钥后缓存在内存中</li>
+ * <li>解密后的值缓存在内存中，之后的读取不再解密</li>
+ * </ul>
+ * 用主密钥文件加密的旧值、以前明文存放在 {@link ConfigManager#KEY_ACCOUNT} 中的同名值，
+ * 在第一次读取时用当前密钥重新加密写回。
+ */
+public final class CredentialStore {
+
+    private static final String KEY_FILE = "secure/credential.key";
+
+    // marks a key known to have no value, so a miss isn't looked up again
+    private static final String ABSENT = new String("");
+
+    private static final ConcurrentHashMap<String, String> sCache = new ConcurrentHashMap<>();
+    private static volatile CredentialCipher sCipher;
+    private static volatile CredentialCipher sFileCipher;
+
+    private CredentialStore() {
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = sCache.get(key);
+        if (value == null) {
+            byte[] data = decode(ConfigManager.getString(key, null, ConfigManager.KEY_SECURE));
+            value = decrypt(key, data);
+            boolean migrated = false;
+            if (value == null) {
+                value = ConfigManager.getString(key, null, ConfigManager.KEY_ACCOUNT);
+                migrated = value != null;
+            }
+            // a putString() racing with the decryption wins, its value is newer
+            String current = sCache.putIfAbsent(key, value != null ? value : ABSENT);
+            if (current != null) {
+                value = current;
+            } else if (migrated || (value != null && data[0] != cipher().getVersion())) {
+                upgrade(key, value, migrated);
+            }
+        }
+        return value != null && value != ABSENT ? value : defaultValue;
+    }
+
+    public static void putString(String key, String value) {
+        edit().putString(key, value).apply();
+    }
+
+    public static void remove(String key) {
+        edit().remove(key).apply();
+    }
+
+    /**
+     * Several credentials changed together, written as one {@link ConfigEditor} batch.
+     */
+    public static Editor edit() {
+        return new Editor();
+    }
+
+    public static boolean contains(String key) {
+        return getString(key, null) != null;
+    }
+
+    public static final class Editor {
+
+        private final ConfigEditor mEditor = ConfigManager.edit(ConfigManager.KEY_SECURE);
+        private final Map<String, String> mValues = new HashMap<>();
+
+        private Editor() {
+        }
+
+        public Editor putString(String key, String value) {
+            if (value == null) {
+                return remove(key);
+            }
+            mEditor.putString(key, encrypt(key, value));
+            mValues.put(key, value);
+            return this;
+        }
+
+        public Editor remove(String key) {
+            mEditor.remove(key);
+            mValues.put(key, ABSENT);
+            return this;
+        }
+
+        public void apply() {
+            // ordered against upgrade(), which only rewrites values nobody has replaced
+            synchronized (CredentialStore.class) {
+                sCache.putAll(mValues);
+                mEditor.apply();
+            }
+        }
+    }
+
+    /**
+     * Replaces the ciphers and forgets decrypted values, for tests.
+     */
+    static void setCiphers(CredentialCipher cipher, CredentialCipher fileCipher) {
+        synchronized (CredentialStore.class) {
+            sCipher = cipher;
+            sFileCipher = fileCipher;
+            sCache.clear();
+        }
+    }
+
+    /**
+     * Rewrites a value read from {@link ConfigManager#KEY_ACCOUNT} or under an older key with the current key.
+     */
+    private static void upgrade(String key, String value, boolean migrated) {
+        synchronized (CredentialStore.class) {
+            if (sCache.get(key) == value) {
+                ConfigManager.putString(key, encrypt(key, value), ConfigManager.KEY_SECURE);
+            }
+            if (migrated) {
+                ConfigManager.remove(key, ConfigManager.KEY_ACCOUNT);
+            }
+        }
+    }
+
+    private static String encrypt(String key, String value) {
+        try {
+            return Base64.encodeToString(cipher().encrypt(key, value), Base64.NO_WRAP);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("can't encrypt " + key, e);
+        }
+    }
+
+    private static byte[] decode(String stored) {
+        if (stored == null) {
+            return null;
+        }
+        try {
+            return Base64.decode(stored, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return null if there is no value, or it can't be decrypted
+     */
+    private static String decrypt(String key, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            CredentialCipher cipher = data[0] == CredentialCipher.VERSION_FILE_KEY ? fileCipher() : cipher();
+            return cipher.decrypt(key, data);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The cipher new values are written with.
+     */
+    private static CredentialCipher cipher() {
+        CredentialCipher cipher = sCipher;
+        if (cipher == null) {
+            synchronized (CredentialStore.class) {
+                cipher = sCipher;
+                if (cipher == null) {
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                        try {
+                            cipher = CredentialCipher.fromKeyStore();
+                        } catch (GeneralSecurityException | RuntimeException e) {
+                            // broken key store on some vendor builds, keep the key in a file instead
+                            cipher = null;
+                        }
+                    }
+                    if (cipher == null) {
+                        try {
+                            cipher = fileCipher();
+                        } catch (GeneralSecurityException e) {
+                            throw new IllegalStateException("no credential key", e);
+                        }
+                    }
+                    sCipher = cipher;
+                }
+            }
+        }
+        return cipher;
+    }
+
+    /**
+     * The master secret file, written by every version before AndroidKeyStore was used and by older devices.
+     */
+    private static CredentialCipher fileCipher() throws GeneralSecurityException {
+        CredentialCipher cipher = sFileCipher;
+        if (cipher == null) {
+            synchronized (CredentialStore.class) {
+                cipher = sFileCipher;
+                if (cipher == null) {
+                    cipher = CredentialCipher.fromFile(new File(ConfigManager.getContext().getFilesDir(), KEY_FILE),
+                            Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT);
+                    sFileCipher = cipher;
+                }
+            }
+        }
+        return cipher;
+    }
+}
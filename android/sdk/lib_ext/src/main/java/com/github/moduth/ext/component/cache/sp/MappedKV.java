@@ -0,0 +1,394 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.cache.sp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only key-value log in a memory-mapped file, see {@link MappedPreferences}.
+ * <p/>
+ * 文件格式：8字节文件头（magic、version），之后是连续的记录：
+ * <pre>
+ * int bodyLength | int crc32(body) | byte op | short keyLength | key | value
+ * </pre>
+ * 每次写入只是往映射内存追加一条记录，由内核负责落盘，进程被杀也不会丢。启动时顺序回放
+ * 所有记录重建内存中的map，遇到长度为0或crc不符的记录即认为是末尾（写了一半的记录）。
+ * 映射区写满时把当前map重写为一个新文件（临时文件+rename），空间仍不够再翻倍。
+ * <p/>
+ * 非线程安全，由 {@link MappedPreferences} 加锁调用。
+ */
+class MappedKV {
+
+    private static final int MAGIC = 0x504b5631; // "PKV1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MIN_SIZE = 4 * 1024;
+
+    static final byte OP_STRING = 1;
+    static final byte OP_BOOLEAN = 2;
+    static final byte OP_INT = 3;
+    static final byte OP_LONG = 4;
+    static final byte OP_FLOAT = 5;
+    static final byte OP_STRING_SET = 6;
+    static final byte OP_REMOVE = 7;
+    static final byte OP_CLEAR = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final Map<String, Object> map = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private byte[] checksumBytes = new byte[256];
+
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Maps {@code file}, creating it if needed, and replays its records.
+     *
+     * @param initial entries written as the first snapshot when the file doesn't exist yet,
+     *                used for the migration from SharedPreferences; may be null
+     */
+    MappedKV(File file, Map<String, ?> initial) throws IOException {
+        this.file = file;
+        if (!file.exists()) {
+            if (initial != null) {
+                for (Map.Entry<String, ?> entry : initial.entrySet()) {
+                    if (entry.getKey() != null && opOf(entry.getValue()) != 0) {
+                        map.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            // written atomically, a half migrated file can't be left behind
+            rewrite(snapshotSize());
+        }
+        open();
+    }
+
+    Map<String, Object> map() {
+        return map;
+    }
+
+    /**
+     * Appends one record and applies it to the map.
+     *
+     * @param value ignored for {@link #OP_REMOVE} and {@link #OP_CLEAR}
+     */
+    void write(String key, Object value, byte op) throws IOException {
+        if (buffer == null) {
+            throw new IOException(file + " is closed");
+        }
+        encode(op, key, value);
+        if (op == OP_CLEAR) {
+            map.clear();
+        } else if (op == OP_REMOVE) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+        if (scratch.remaining() > buffer.remaining()) {
+            // the map already holds the new value, so the snapshot includes it
+            int needed = snapshotSize();
+            int size = buffer.capacity();
+            while (needed * 2 > size) {
+                size *= 2;
+            }
+            close();
+            try {
+                rewrite(size);
+            } finally {
+                open();
+            }
+            return;
+        }
+        buffer.put(scratch);
+    }
+
+    /**
+     * Flushes dirty pages, only needed to survive a power loss, process death is fine without it.
+     */
+    void sync() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    void close() {
+        buffer = null;
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException ignored) {
+            }
+            raf = null;
+        }
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        int size = (int) Math.max(raf.length(), MIN_SIZE);
+        raf.setLength(size);
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a key-value file: " + file);
+        }
+        map.clear();
+        buffer.position(HEADER_SIZE);
+        replay();
+    }
+
+    private void replay() {
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() || checksum != checksum(buffer, length)) {
+                buffer.position(start);
+                if (length != 0) {
+                    // torn record, zero it so its leftovers never follow a later record
+                    zeroFrom(start);
+                }
+                return;
+            }
+            try {
+                apply(buffer);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                buffer.position(start);
+                zeroFrom(start);
+                return;
+            }
+            buffer.position(start + RECORD_HEADER_SIZE + length);
+        }
+    }
+
+    private void zeroFrom(int start) {
+        for (int i = start; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private int checksum(ByteBuffer source, int length) {
+        crc.reset();
+        if (source.hasArray()) {
+            crc.update(source.array(), source.arrayOffset() + source.position(), length);
+        } else {
+            if (checksumBytes.length < length) {
+                checksumBytes = new byte[Math.max(length, checksumBytes.length * 2)];
+            }
+            source.duplicate().get(checksumBytes, 0, length);
+            crc.update(checksumBytes, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    private void apply(ByteBuffer source) {
+        byte op = source.get();
+        if (op == OP_CLEAR) {
+            map.clear();
+            return;
+        }
+        String key = readString(source, source.getShort() & 0xffff);
+        switch (op) {
+            case OP_STRING:
+                map.put(key, readString(source, source.getInt()));
+                break;
+            case OP_BOOLEAN:
+                map.put(key, source.get() != 0);
+                break;
+            case OP_INT:
+                map.put(key, source.getInt());
+                break;
+            case OP_LONG:
+                map.put(key, source.getLong());
+                break;
+            case OP_FLOAT:
+                map.put(key, source.getFloat());
+                break;
+            case OP_STRING_SET:
+                int count = source.getInt();
+                Set<String> set = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    set.add(readString(source, source.getInt()));
+                }
+                map.put(key, set);
+                break;
+            case OP_REMOVE:
+                map.remove(key);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown op " + op);
+        }
+    }
+
+    private static String readString(ByteBuffer source, int length) {
+        if (length < 0 || length > source.remaining()) {
+            throw new IllegalArgumentException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Encodes one record into {@link #scratch}, ready to be copied.
+     */
+    @SuppressWarnings("unchecked")
+    private void encode(byte op, String key, Object value) {
+        scratch.clear();
+        scratch.position(RECORD_HEADER_SIZE);
+        ensure(1);
+        scratch.put(op);
+        if (op != OP_CLEAR) {
+            byte[] keyBytes = key.getBytes(UTF_8);
+            if (keyBytes.length > 0xffff) {
+                throw new IllegalArgumentException("key too long: " + keyBytes.length + " bytes");
+            }
+            ensure(2 + keyBytes.length);
+            scratch.putShort((short) keyBytes.length);
+            scratch.put(keyBytes);
+            switch (op) {
+                case OP_STRING:
+                    putString((String) value);
+                    break;
+                case OP_BOOLEAN:
+                    ensure(1);
+                    scratch.put((byte) ((Boolean) value ? 1 : 0));
+                    break;
+                case OP_INT:
+                    ensure(4);
+                    scratch.putInt((Integer) value);
+                    break;
+                case OP_LONG:
+                    ensure(8);
+                    scratch.putLong((Long) value);
+                    break;
+                case OP_FLOAT:
+                    ensure(4);
+                    scratch.putFloat((Float) value);
+                    break;
+                case OP_STRING_SET:
+                    Set<String> set = (Set<String>) value;
+                    ensure(4);
+                    scratch.putInt(set.size());
+                    for (String s : set) {
+                        putString(s);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        int length = scratch.position() - RECORD_HEADER_SIZE;
+        scratch.flip();
+        scratch.position(RECORD_HEADER_SIZE);
+        int checksum = checksum(scratch, length);
+        scratch.putInt(0, length);
+        scratch.putInt(4, checksum);
+        scratch.position(0);
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        ensure(4 + bytes.length);
+        scratch.putInt(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            grown.put(scratch);
+            scratch = grown;
+        }
+    }
+
+    static byte opOf(Object value) {
+        if (value instanceof String) {
+            return OP_STRING;
+        } else if (value instanceof Boolean) {
+            return OP_BOOLEAN;
+        } else if (value instanceof Integer) {
+            return OP_INT;
+        } else if (value instanceof Long) {
+            return OP_LONG;
+        } else if (value instanceof Float) {
+            return OP_FLOAT;
+        } else if (value instanceof Set) {
+            return OP_STRING_SET;
+        }
+        return 0;
+    }
+
+    private int snapshotSize() {
+        int size = HEADER_SIZE;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            encode(opOf(entry.getValue()), entry.getKey(), entry.getValue());
+            size += scratch.remaining();
+        }
+        return Math.max(size, MIN_SIZE);
+    }
+
+    /**
+     * Compaction: writes the current map as a new file of {@code size} bytes and renames it
+     * over the old one.
+     */
+    private void rewrite(int size) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(temp, "rw");
+        try {
+            out.setLength(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                encode(opOf(entry.getValue()), entry.getKey(), entry.getValue());
+                out.write(scratch.array(), 0, scratch.remaining());
+            }
+            // zero filled, the free space of the mapping
+            out.setLength(Math.max(size, out.getFilePointer()));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("can't replace " + file);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.cache.sp;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * {@link SharedPreferences} backed by a {@link MappedKV} file.
+ * <p/>
+ * 与系统实现的区别：apply()/commit() 只是在调用线程往映射内存追加记录，不会重写整个xml，
+ * 也不会进入 QueuedWork 在 onPause 时等待；commit() 额外做一次 msync。
+ * 监听器与系统实现一样在主线程回调，只保持弱引用。
+ */
+class MappedPreferences implements SharedPreferences {
+
+    private static final String TAG = "MappedPreferences";
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final MappedKV kv;
+    private final WeakHashMap<OnSharedPreferenceChangeListener, Object> listeners = new WeakHashMap<>();
+
+    /**
+     * @param file   the key-value file
+     * @param legacy preferences migrated into the file when it doesn't exist yet, may be null
+     */
+    MappedPreferences(File file, SharedPreferences legacy) throws IOException {
+        boolean migrate = legacy != null && !file.exists();
+        kv = new MappedKV(file, migrate ? legacy.getAll() : null);
+        if (migrate) {
+            // the data lives in the mapped file from now on
+            legacy.edit().clear().apply();
+        }
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(kv.map());
+    }
+
+    @Override
+    public synchronized String getString(String key, String defValue) {
+        String value = (String) kv.map().get(key);
+        return value != null ? value : defValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+        Set<String> value = (Set<String>) kv.map().get(key);
+        return value != null ? value : defValues;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Integer value = (Integer) kv.map().get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Long value = (Long) kv.map().get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        Float value = (Float) kv.map().get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Boolean value = (Boolean) kv.map().get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return kv.map().containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new EditorImpl();
+    }
+
+    @Override
+    public synchronized void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        listeners.put(listener, this);
+    }
+
+    @Override
+    public synchronized void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return false if the records couldn't be written, the in-memory values are updated anyway
+     */
+    private boolean write(Map<String, Object> modified, boolean clear, boolean sync) {
+        final List<String> changedKeys = new ArrayList<>();
+        final List<OnSharedPreferenceChangeListener> toNotify;
+        boolean written = true;
+        synchronized (this) {
+            Map<String, Object> map = kv.map();
+            try {
+                if (clear && !map.isEmpty()) {
+                    kv.write(null, null, MappedKV.OP_CLEAR);
+                }
+                for (Map.Entry<String, Object> entry : modified.entrySet()) {
+                    String key = entry.getKey();
+                    Object value = entry.getValue();
+                    if (value == null) {
+                        if (!map.containsKey(key)) {
+                            continue;
+                        }
+                        kv.write(key, null, MappedKV.OP_REMOVE);
+                    } else {
+                        if (value.equals(map.get(key))) {
+                            continue;
+                        }
+                        kv.write(key, value, MappedKV.opOf(value));
+                    }
+                    changedKeys.add(key);
+                }
+                if (sync) {
+                    kv.sync();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "failed to write preferences", e);
+                written = false;
+            }
+            toNotify = listeners.isEmpty() || changedKeys.isEmpty()
+                    ? null : new ArrayList<>(listeners.keySet());
+        }
+        if (toNotify != null) {
+            Runnable notifier = new Runnable() {
+                @Override
+                public void run() {
+                    for (String key : changedKeys) {
+                        for (OnSharedPreferenceChangeListener listener : toNotify) {
+                            listener.onSharedPreferenceChanged(MappedPreferences.this, key);
+                        }
+                    }
+                }
+            };
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                notifier.run();
+            } else {
+                sMainHandler.post(notifier);
+            }
+        }
+        return written;
+    }
+
+    private class EditorImpl implements Editor {
+
+        // null value means remove
+        private final Map<String, Object> modified = new HashMap<>();
+        private boolean clear;
+
+        @Override
+        public synchronized Editor putString(String key, String value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putStringSet(String key, Set<String> values) {
+            modified.put(key, values == null ? null : new HashSet<>(values));
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putInt(String key, int value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putLong(String key, long value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putFloat(String key, float value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putBoolean(String key, boolean value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor remove(String key) {
+            modified.put(key, null);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public synchronized boolean commit() {
+            return flush(true);
+        }
+
+        @Override
+        public synchronized void apply() {
+            flush(false);
+        }
+
+        private boolean flush(boolean sync) {
+            boolean written = write(modified, clear, sync);
+            modified.clear();
+            clear = false;
+            return written;
+        }
+    }
+}
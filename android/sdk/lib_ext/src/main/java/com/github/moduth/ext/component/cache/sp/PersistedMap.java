@@ -1,61 +1,361 @@
 package com.github.moduth.ext.component.cache.sp;
 
-import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.Build;
+import android.util.Log;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 /**
- * 一个通过SharedPreference存放的持久化map，由于实际提供服务的数据来源
- * 是内存中的map，所以可以做到同步返回，不用依赖于SharedPreference实际操作完成。
+ * 一个持久化的 String -> long map，实际提供服务的数据来源是内存中的map，
+ * 所以可以做到同步返回，不用等待写盘完成。
+ * <p/>
+ * 值以原始long存放在 {@link StringLongMap} 中，没有装箱。修改先追加到内存中的journal，
+ * 最多 {@link #FLUSH_DELAY_MS} 后由后台线程成批追加到文件：
+ * <pre>
+ * int length | int crc32(records) | records
+ * record: byte op | short keyLength | key | [long value]
+ * </pre>
+ * 加载时一次读入整个文件顺序回放，crc不符的批次（写了一半）及其之后的内容被截掉。
+ * 文件超过上次压缩后大小的两倍时重写为一个快照批次（临时文件+rename）。
+ * 写入失败时该批次可能只写了一半，下一次flush（{@link #RETRY_DELAY_MS} 后重试）改为写完整快照，
+ * 内存中的map仍是完整的，丢失的修改和文件中间残缺的批次都被快照覆盖。
  * <p/>
  * Created by zhaiyifan on 2015/8/4.
  */
-@TargetApi(Build.VERSION_CODES.GINGERBREAD)
 class PersistedMap {
 
     private static final long KEY_NOT_FOUND_VALUE = -1;
-    private final SharedPreferences preferences;
-    private Map<String, Long> map = new ConcurrentHashMap<>();
 
-    public PersistedMap(Context context, String mapName) {
-        preferences = context.getSharedPreferences(PersistedMap.class.getSimpleName() + mapName, Context.MODE_PRIVATE);
-        Map<String, ?> allPreferences = preferences.getAll();
+    private static final String DIR = "persisted_map";
+    private static final String SUFFIX = ".journal";
+    private static final long FLUSH_DELAY_MS = 1000;
+    private static final long RETRY_DELAY_MS = 30 * 1000;
+    private static final int FLUSH_THRESHOLD = 4 * 1024;
+    private static final int MIN_COMPACT_SIZE = 16 * 1024;
+    private static final int BATCH_HEADER_SIZE = 8;
 
-        for (String key : allPreferences.keySet()) {
-            long value = preferences.getLong(key, KEY_NOT_FOUND_VALUE);
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
 
-            if (value != KEY_NOT_FOUND_VALUE) {
-                map.put(key, value);
-            }
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String TAG = "PersistedMap";
+
+    private static final ScheduledExecutorService sWriter = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "persisted-map-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final File file;
+    private final StringLongMap map;
+    // serializes file writes, taken before the lock of this
+    private final Object ioLock = new Object();
+
+    // records not written yet, guarded by this
+    private ByteBuffer journal = ByteBuffer.allocate(256);
+    private boolean flushScheduled;
+    // a write failed, the file no longer matches the map until the next snapshot
+    private boolean snapshotNeeded;
+    // guarded by ioLock
+    private long fileLength;
+    private long compactThreshold = MIN_COMPACT_SIZE;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public PersistedMap(Context context, String mapName) {
+        this(new File(new File(context.getFilesDir(), DIR), mapName + SUFFIX), context.getSharedPreferences(
+                PersistedMap.class.getSimpleName() + mapName, Context.MODE_PRIVATE));
+    }
+
+    /**
+     * @param legacy imported once if {@code file} doesn't exist yet, may be null
+     */
+    PersistedMap(File file, SharedPreferences legacy) {
+        this.file = file;
+        file.getParentFile().mkdirs();
+        if (file.exists()) {
+            map = load();
+        } else {
+            map = migrate(legacy);
         }
     }
 
-    public Long get(String tag) {
-        return map.get(tag);
+    public synchronized boolean contains(String tag) {
+        return map.containsKey(tag);
+    }
+
+    public synchronized long get(String tag, long defaultValue) {
+        return map.get(tag, defaultValue);
+    }
+
+    /**
+     * @return value of {@code tag}, or -1 if there is none
+     */
+    public long get(String tag) {
+        return get(tag, KEY_NOT_FOUND_VALUE);
     }
 
-    public void put(String tag, long timeSeen) {
+    public synchronized void put(String tag, long timeSeen) {
         map.put(tag, timeSeen);
-        SharedPreferences.Editor edit = preferences.edit();
-        edit.putLong(tag, timeSeen);
-        edit.apply();
+        append(OP_PUT, tag, timeSeen);
     }
 
-    public void remove(String tag) {
-        map.remove(tag);
-        SharedPreferences.Editor edit = preferences.edit();
-        edit.remove(tag);
-        edit.apply();
+    public synchronized void remove(String tag) {
+        if (map.remove(tag)) {
+            append(OP_REMOVE, tag, 0);
+        }
     }
 
-    public void clear() {
+    public synchronized void clear() {
         map.clear();
-        SharedPreferences.Editor edit = preferences.edit();
-        edit.clear();
-        edit.apply();
+        // earlier records are dead, the clear record alone is enough
+        journal.clear();
+        append(OP_CLEAR, null, 0);
+    }
+
+    /**
+     * Writes pending changes on the calling thread, normally done in the background.
+     */
+    public void flush() {
+        synchronized (ioLock) {
+            byte[] batch;
+            boolean compact;
+            synchronized (this) {
+                flushScheduled = false;
+                compact = snapshotNeeded || fileLength + journal.position() > compactThreshold;
+                snapshotNeeded = false;
+                if (compact) {
+                    // the snapshot replaces the pending records
+                    journal.clear();
+                    encodeAll(map);
+                } else if (journal.position() == 0) {
+                    return;
+                }
+                batch = takeBatch();
+            }
+            try {
+                writeBatch(batch, compact);
+            } catch (IOException e) {
+                Log.w(TAG, "failed to write " + file, e);
+                retryWithSnapshot();
+            }
+        }
+    }
+
+    /**
+     * The failed batch is gone from the journal and may be half on disk, the map still has it.
+     */
+    private synchronized void retryWithSnapshot() {
+        snapshotNeeded = true;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            sWriter.schedule(flushTask, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void append(byte op, String key, long value) {
+        encode(op, key, value);
+        if (journal.position() >= FLUSH_THRESHOLD) {
+            flushScheduled = true;
+            sWriter.execute(flushTask);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            sWriter.schedule(flushTask, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void encode(byte op, String key, long value) {
+        byte[] keyBytes = key != null ? key.getBytes(UTF_8) : null;
+        int needed = 1 + (keyBytes != null ? 2 + keyBytes.length + 8 : 0);
+        if (journal.remaining() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(journal.capacity() * 2, journal.position() + needed));
+            journal.flip();
+            grown.put(journal);
+            journal = grown;
+        }
+        journal.put(op);
+        if (keyBytes != null) {
+            journal.putShort((short) keyBytes.length);
+            journal.put(keyBytes);
+            if (op == OP_PUT) {
+                journal.putLong(value);
+            }
+        }
+    }
+
+    /**
+     * Bulk loader: one read of the whole file, then a replay over the byte array.
+     */
+    private StringLongMap load() {
+        StringLongMap result = new StringLongMap(16);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                byte[] data = new byte[(int) raf.length()];
+                raf.readFully(data);
+                int valid = replay(ByteBuffer.wrap(data), result);
+                if (valid < data.length) {
+                    // torn batch of a killed write
+                    raf.setLength(valid);
+                }
+                fileLength = valid;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "failed to load " + file, e);
+        }
+        compactThreshold = Math.max(MIN_COMPACT_SIZE, fileLength * 2);
+        return result;
+    }
+
+    /**
+     * @return length of the valid prefix of {@code data}
+     */
+    private static int replay(ByteBuffer data, StringLongMap target) {
+        CRC32 crc = new CRC32();
+        int valid = 0;
+        while (data.remaining() >= BATCH_HEADER_SIZE) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int end = data.position() + length;
+            while (data.position() < end) {
+                byte op = data.get();
+                if (op == OP_CLEAR) {
+                    target.clear();
+                    continue;
+                }
+                byte[] keyBytes = new byte[data.getShort() & 0xffff];
+                data.get(keyBytes);
+                String key = new String(keyBytes, UTF_8);
+                if (op == OP_PUT) {
+                    target.put(key, data.getLong());
+                } else {
+                    target.remove(key);
+                }
+            }
+            valid = end;
+        }
+        return valid;
+    }
+
+    /**
+     * One-time import of the SharedPreferences used before, its values are already Longs.
+     */
+    private StringLongMap migrate(SharedPreferences legacy) {
+        Map<String, ?> all = legacy != null ? legacy.getAll() : Collections.<String, Object>emptyMap();
+        StringLongMap result = new StringLongMap(all.size());
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Long && (Long) value != KEY_NOT_FOUND_VALUE) {
+                result.put(entry.getKey(), (Long) value);
+            }
+        }
+        byte[] batch;
+        synchronized (this) {
+            encodeAll(result);
+            batch = takeBatch();
+        }
+        synchronized (ioLock) {
+            try {
+                // renamed into place, the journal never exists half migrated
+                writeBatch(batch, true);
+                if (!all.isEmpty()) {
+                    legacy.edit().clear().apply();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "failed to migrate " + file, e);
+                retryWithSnapshot();
+            }
+        }
+        return result;
+    }
+
+    private void encodeAll(StringLongMap source) {
+        for (int i = 0; i < source.capacity(); i++) {
+            String key = source.keyAt(i);
+            if (key != null) {
+                encode(OP_PUT, key, source.valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Moves the journal into a framed batch: length, crc32, records.
+     */
+    private byte[] takeBatch() {
+        int length = journal.position();
+        byte[] batch = new byte[BATCH_HEADER_SIZE + length];
+        System.arraycopy(journal.array(), 0, batch, BATCH_HEADER_SIZE, length);
+        journal.clear();
+        CRC32 crc = new CRC32();
+        crc.update(batch, BATCH_HEADER_SIZE, length);
+        ByteBuffer.wrap(batch).putInt(length).putInt((int) crc.getValue());
+        return batch;
+    }
+
+    /**
+     * @param replace true to write {@code batch} as the whole file, false to append it
+     */
+    private void writeBatch(byte[] batch, boolean replace) throws IOException {
+        if (replace) {
+            rewrite(batch);
+            fileLength = batch.length;
+            compactThreshold = Math.max(MIN_COMPACT_SIZE, fileLength * 2);
+        } else {
+            FileOutputStream out = new FileOutputStream(file, true);
+            try {
+                out.write(batch);
+            } finally {
+                out.close();
+            }
+            fileLength += batch.length;
+        }
+    }
+
+    private void rewrite(byte[] snapshot) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(snapshot);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("can't replace " + file);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.cache.sp;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing String to primitive long map, so neither values nor entries get boxed.
+ * <p/>
+ * 线性探测，删除留下墓碑，装载率（含墓碑）超过3/4时重建。遍历方式与 ArrayMap 类似：
+ * 对 0 ~ {@link #capacity()} 调用 {@link #keyAt(int)}，跳过返回null的槽位。
+ * 非线程安全。
+ */
+final class StringLongMap {
+
+    // identity compared marker of a removed slot
+    private static final String TOMBSTONE = new String("");
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+    private int used;
+
+    StringLongMap(int expectedSize) {
+        int capacity = 8;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        values = new long[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return key of slot {@code index}, null if the slot is empty
+     */
+    String keyAt(int index) {
+        String key = keys[index];
+        return key == TOMBSTONE ? null : key;
+    }
+
+    long valueAt(int index) {
+        return values[index];
+    }
+
+    boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    long get(String key, long defaultValue) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    void put(String key, long value) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        int tombstone = -1;
+        String k;
+        while ((k = keys[index]) != null) {
+            if (k == TOMBSTONE) {
+                if (tombstone < 0) {
+                    tombstone = index;
+                }
+            } else if (k.equals(key)) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        if (tombstone >= 0) {
+            index = tombstone;
+        } else {
+            used++;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if (used > keys.length * 3 / 4) {
+            rehash(size * 2 > keys.length * 3 / 4 ? keys.length << 1 : keys.length);
+        }
+    }
+
+    boolean remove(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        keys[index] = TOMBSTONE;
+        size--;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+        used = 0;
+    }
+
+    private int indexOf(String key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        String k;
+        while ((k = keys[index]) != null) {
+            if (k != TOMBSTONE && k.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new String[capacity];
+        values = new long[capacity];
+        size = 0;
+        used = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            String key = oldKeys[i];
+            if (key != null && key != TOMBSTONE) {
+                put(key, oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        // mix the high bits into the low ones picked by the mask
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.cache.sp;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges the async writes of {@link ConfigManager} made within {@link #WINDOW_MS} into one
+ * editor per namespace.
+ * <p/>
+ * 未写出的值保存在内存中，{@link ConfigManager} 的读取方法先查这里，所以写入后立即可读。
+ * 同步写（commit）先把该命名空间中积压的修改一起写出，保证顺序。
+ * <p/>
+ * 写出时只在锁内把积压的修改换出到 in-flight 表，加载命名空间和写editor（可能触发压缩重写和
+ * fsync）都在锁外进行，{@link #peek} 同时查 in-flight 表，写出期间读线程不会被阻塞也不会读到旧值。
+ * 写出之间由 {@link #writeLock} 串行化，保证先换出的先写。
+ */
+class WriteCoalescer {
+
+    static final long WINDOW_MS = 50;
+
+    /**
+     * Pending value of a removed key.
+     */
+    static final Object REMOVED = new Object();
+
+    // namespace -> key -> value or REMOVED, in write order
+    private final Map<String, Map<String, Object>> pending = new HashMap<>();
+    // namespaces cleared before their pending changes
+    private final Set<String> cleared = new HashSet<>();
+    // namespace -> batch taken out of pending and being written, guarded by this
+    private final Map<String, Batch> inFlight = new HashMap<>();
+    // held for the whole write of a batch, always taken before this
+    private final Object writeLock = new Object();
+    private final ScheduledExecutorService executor;
+    private boolean scheduled;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushAll();
+        }
+    };
+
+    WriteCoalescer() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "config-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param value new value, or {@link #REMOVED}
+     */
+    synchronized void put(String namespace, String key, Object value) {
+        changes(namespace).put(key, value);
+        schedule();
+    }
+
+    synchronized void merge(String namespace, Map<String, Object> values, boolean clear) {
+        if (clear) {
+            cleared.add(namespace);
+            changes(namespace).clear();
+        }
+        changes(namespace).putAll(values);
+        schedule();
+    }
+
+    /**
+     * @return the value not written yet, {@link #REMOVED}, or null if nothing is pending for the key
+     */
+    synchronized Object peek(String namespace, String key) {
+        Map<String, Object> changes = pending.get(namespace);
+        Object value = changes != null ? changes.get(key) : null;
+        if (value != null) {
+            return value;
+        }
+        if (cleared.contains(namespace)) {
+            return REMOVED;
+        }
+        Batch batch = inFlight.get(namespace);
+        if (batch != null) {
+            value = batch.changes != null ? batch.changes.get(key) : null;
+            if (value == null && batch.clear) {
+                return REMOVED;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Writes the pending changes of {@code namespace} on the calling thread.
+     *
+     * @param sync commit() instead of apply()
+     * @return the result of commit(), true for apply()
+     */
+    boolean flush(String namespace, boolean sync) {
+        synchronized (writeLock) {
+            Batch batch;
+            synchronized (this) {
+                boolean clear = cleared.remove(namespace);
+                Map<String, Object> changes = pending.remove(namespace);
+                if (!clear && changes == null && !sync) {
+                    return true;
+                }
+                batch = new Batch(clear, changes);
+                inFlight.put(namespace, batch);
+            }
+            try {
+                return write(namespace, batch, sync);
+            } finally {
+                synchronized (this) {
+                    if (inFlight.get(namespace) == batch) {
+                        inFlight.remove(namespace);
+                    }
+                }
+            }
+        }
+    }
+
+    void flushAll() {
+        Set<String> namespaces;
+        synchronized (this) {
+            scheduled = false;
+            namespaces = new HashSet<>(pending.keySet());
+            namespaces.addAll(cleared);
+        }
+        for (String namespace : namespaces) {
+            flush(namespace, false);
+        }
+    }
+
+    /**
+     * Called without holding this, the editor is already visible to readers when it returns.
+     */
+    private static boolean write(String namespace, Batch batch, boolean sync) {
+        SharedPreferences.Editor editor = ConfigManager.getPreferences(namespace).edit();
+        if (batch.clear) {
+            editor.clear();
+        }
+        if (batch.changes != null) {
+            for (Map.Entry<String, Object> entry : batch.changes.entrySet()) {
+                put(editor, entry.getKey(), entry.getValue());
+            }
+        }
+        if (sync || !ConfigManager.isAsyncSupported()) {
+            return editor.commit();
+        }
+        editor.apply();
+        return true;
+    }
+
+    private Map<String, Object> changes(String namespace) {
+        Map<String, Object> changes = pending.get(namespace);
+        if (changes == null) {
+            changes = new HashMap<>();
+            pending.put(namespace, changes);
+        }
+        return changes;
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            executor.schedule(flushTask, WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Changes taken out of pending for one write.
+     */
+    private static final class Batch {
+        final boolean clear;
+        final Map<String, Object> changes;
+
+        Batch(boolean clear, Map<String, Object> changes) {
+            this.clear = clear;
+            this.changes = changes;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(SharedPreferences.Editor editor, String key, Object value) {
+        if (value == REMOVED) {
+            editor.remove(key);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Set) {
+            editor.putStringSet(key, (Set<String>) value);
+        }
+    }
+}
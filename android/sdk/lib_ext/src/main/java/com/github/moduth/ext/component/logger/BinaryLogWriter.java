@@ -0,0 +1,242 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import com.github.moduth.ext.utils.FileUtils;
+import com.github.moduth.logformat.BinaryLogBlock;
+import com.github.moduth.logformat.BinaryLogBlockWriter;
+import com.github.moduth.logformat.BinaryLogFormat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends records in {@link BinaryLogFormat} to a rolling set of files.
+ * Encoding and framing live in lib_logformat next to the reader, this class only adds
+ * the threading and the file rolling.
+ * <p/>
+ * 记录先编码进内存中的block，一次write()只有varint和UTF-8编码的开销；
+ * block满32KB（或调用flush）时整块交给唯一的写线程，压缩、校验和写盘都在写线程完成，
+ * 调用线程换一块空闲block继续编码。写线程跟不上时最多积压 {@link #MAX_PENDING_BLOCKS} 块，
+ * 再多就丢弃最旧的一块。
+ */
+class BinaryLogWriter {
+
+    private static final int BLOCK_SIZE = 32 * 1024;
+    private static final int MAX_PENDING_BLOCKS = 4;
+
+    private final File file;
+    private final long maxFileSize;
+    private final int maxBackups;
+
+    // encoding state, guarded by this
+    private final BinaryLogBlock block = new BinaryLogBlock(new byte[BLOCK_SIZE]);
+
+    // hand-off between the encoding threads and the writer thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private final ArrayDeque<Integer> pendingLengths = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> spare = new ArrayDeque<>();
+    private long droppedBlocks;
+
+    // only touched by the writer thread
+    private final BinaryLogBlockWriter blockWriter;
+    private FileOutputStream out;
+    private long fileLength;
+
+    /**
+     * @param file        current log file, rolled files get a .1 .. .maxBackups suffix
+     * @param maxFileSize roll over once the current file reaches this size
+     * @param maxBackups  number of rolled files kept
+     * @param compress    deflate every block
+     */
+    BinaryLogWriter(File file, long maxFileSize, int maxBackups, boolean compress) {
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxBackups = maxBackups;
+        this.blockWriter = new BinaryLogBlockWriter(compress);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "binary-log-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    synchronized void write(int level, String tag, String message) {
+        if (tag == null) {
+            tag = LogConstants.TAG;
+        }
+        if (message == null) {
+            message = "null";
+        }
+        long now = System.currentTimeMillis();
+        if (!block.append(now, level, tag, message)) {
+            handOff();
+            block.append(now, level, tag, message);
+        }
+        if (block.size() >= BLOCK_SIZE) {
+            handOff();
+        }
+    }
+
+    /**
+     * Hands the pending block to the writer thread, it reaches the disk shortly after.
+     */
+    synchronized void flush() {
+        handOff();
+    }
+
+    /**
+     * @return number of blocks dropped because the writer thread fell behind
+     */
+    long getDroppedBlocks() {
+        lock.lock();
+        try {
+            return droppedBlocks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the current block and continues on a spare one, caller holds this.
+     */
+    private void handOff() {
+        if (block.size() == 0) {
+            return;
+        }
+        byte[] next;
+        lock.lock();
+        try {
+            if (pending.size() == MAX_PENDING_BLOCKS) {
+                spare.push(pending.poll());
+                pendingLengths.poll();
+                droppedBlocks++;
+            }
+            pending.offer(block.buffer());
+            pendingLengths.offer(block.size());
+            notEmpty.signal();
+            next = spare.poll();
+        } finally {
+            lock.unlock();
+        }
+        block.reset(next != null ? next : new byte[BLOCK_SIZE]);
+    }
+
+    private void writeLoop() {
+        while (true) {
+            byte[] raw;
+            int length;
+            lock.lock();
+            try {
+                while (pending.isEmpty()) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                raw = pending.poll();
+                length = pendingLengths.poll();
+            } finally {
+                lock.unlock();
+            }
+
+            writeBlock(raw, length);
+
+            // oversized blocks for single huge records are not kept around
+            if (raw.length == BLOCK_SIZE) {
+                lock.lock();
+                try {
+                    if (spare.size() < MAX_PENDING_BLOCKS) {
+                        spare.push(raw);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void writeBlock(byte[] raw, int rawLength) {
+        try {
+            if (out == null) {
+                open();
+            }
+            fileLength += blockWriter.writeBlock(out, raw, rawLength);
+            if (fileLength >= maxFileSize) {
+                rollOver();
+            }
+        } catch (IOException e) {
+            // storage gone or full, drop this block and retry opening with the next one
+            closeQuietly();
+        }
+    }
+
+    private void open() throws IOException {
+        FileUtils.mkdirs(file.getParentFile());
+        // cut a block torn by a previous crash so new blocks stay readable
+        fileLength = BinaryLogBlockWriter.recover(file);
+        out = new FileOutputStream(file, true);
+        if (fileLength == 0) {
+            fileLength = BinaryLogBlockWriter.writeFileHeader(out);
+        }
+    }
+
+    private void rollOver() {
+        closeQuietly();
+        String path = file.getPath();
+        new File(path + "." + maxBackups).delete();
+        for (int i = maxBackups - 1; i >= 1; i--) {
+            File from = new File(path + "." + i);
+            if (from.exists()) {
+                from.renameTo(new File(path + "." + (i + 1)));
+            }
+        }
+        if (maxBackups > 0) {
+            file.renameTo(new File(path + ".1"));
+        } else {
+            file.delete();
+        }
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            out = null;
+        }
+        fileLength = 0;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import com.github.moduth.ext.utils.Singleton;
+import com.github.moduth.logformat.BinaryLogFormat;
+
+import java.io.File;
+
+import static com.github.moduth.ext.component.logger.LogConstants.TAG;
+
+/**
+ * Release-mode logger writing all levels in the compact binary format, i/w/e also go to logcat.
+ * Decode the files with lib_logformat's BinaryLogDecoder.
+ * <p/>
+ * 可选实现，app默认仍用 {@link ReleaseLogger}：记录先攒在堆上32KB的block里，满了或e()时才交给写线程，
+ * native crash或进程被杀会丢掉还没交出去的那一块；ReleaseLogger走log4j的mmap分段文件，没有这个问题。
+ * 用它时记得在进入后台时调用 {@link #flush()}。
+ */
+public class BinaryLogger implements ILog {
+
+    // same disk budget as the release text log, holds several times more lines
+    private static final long MAX_FILE_SIZE = 512 * 1024;
+    private static final int MAX_BACKUPS = 5;
+
+    private final BinaryLogWriter mWriter = new BinaryLogWriter(
+            new File(LogConstants.PATH, LogConstants.BINARY_FILE_NAME), MAX_FILE_SIZE, MAX_BACKUPS, true);
+
+    private BinaryLogger() {
+    }
+
+    private static Singleton<BinaryLogger, Void> sSingleton = new Singleton<BinaryLogger, Void>() {
+        @Override
+        protected BinaryLogger create(Void aVoid) {
+            return new BinaryLogger();
+        }
+    };
+
+    public static BinaryLogger getInstance() {
+        return sSingleton.get(null);
+    }
+
+    /**
+     * Hands buffered records to the writer thread, e.g. when the app goes to background.
+     * Never blocks on disk.
+     */
+    public void flush() {
+        mWriter.flush();
+    }
+
+    @Override
+    public void v(String tag, String text) {
+        mWriter.write(BinaryLogFormat.LEVEL_VERBOSE, tag, text);
+    }
+
+    @Override
+    public void v(String text) {
+        mWriter.write(BinaryLogFormat.LEVEL_VERBOSE, TAG, text);
+    }
+
+    @Override
+    public void d(String tag, String text) {
+        mWriter.write(BinaryLogFormat.LEVEL_DEBUG, tag, text);
+    }
+
+    @Override
+    public void d(String text) {
+        mWriter.write(BinaryLogFormat.LEVEL_DEBUG, TAG, text);
+    }
+
+    @Override
+    public void i(String tag, String text) {
+        Log.i(tag, text);
+        mWriter.write(BinaryLogFormat.LEVEL_INFO, tag, text);
+    }
+
+    @Override
+    public void i(String text) {
+        Log.i(TAG, text);
+        mWriter.write(BinaryLogFormat.LEVEL_INFO, TAG, text);
+    }
+
+    @Override
+    public void w(String tag, String text) {
+        Log.w(tag, text);
+        mWriter.write(BinaryLogFormat.LEVEL_WARN, tag, text);
+    }
+
+    @Override
+    public void w(String text) {
+        Log.w(TAG, text);
+        mWriter.write(BinaryLogFormat.LEVEL_WARN, TAG, text);
+    }
+
+    // errors leave the memory block right away so a following crash loses as little as possible
+
+    @Override
+    public void e(String tag, String text) {
+        Log.e(tag, text);
+        mWriter.write(BinaryLogFormat.LEVEL_ERROR, tag, text);
+        mWriter.flush();
+    }
+
+    @Override
+    public void e(Exception e) {
+        Log.e(TAG, e);
+        mWriter.write(BinaryLogFormat.LEVEL_ERROR, TAG, Log.getStackTraceString(e));
+        mWriter.flush();
+    }
+
+    @Override
+    public void e(String text) {
+        Log.e(TAG, text);
+        mWriter.write(BinaryLogFormat.LEVEL_ERROR, TAG, text);
+        mWriter.flush();
+    }
+}
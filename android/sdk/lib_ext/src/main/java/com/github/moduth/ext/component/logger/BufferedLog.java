@@ -0,0 +1,234 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * {@link ILog} keeping calls in memory until the real logger is ready.
+ * <p/>
+ * {@link Logger#init} 在主线程只创建它，log4j 配置和文件打开放到后台线程，完成后调用
+ * {@link #drainTo(ILog)} 按原顺序回放缓存的日志，之后的调用直接转发。缓存满时丢弃最旧的，
+ * 回放时以一条warn汇报丢弃数。
+ * <p/>
+ * 每条记录调用时的 {@link System#currentTimeMillis()}，回放的文本前加上
+ * {@code [logged at MM-dd HH:mm:ss.SSS]}，文件里的时间是写出时间，靠它才能还原启动阶段的真实时序。
+ */
+class BufferedLog implements ILog {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int LEVEL_EXCEPTION = -1;
+
+    private static class Entry {
+        long time;
+        int level;
+        String tag;
+        String text;
+        Exception exception;
+    }
+
+    private final Entry[] entries;
+    private int head;
+    private int size;
+    private int dropped;
+    // guarded by this, set once the buffer has been replayed
+    private ILog delegate;
+
+    BufferedLog(int capacity) {
+        entries = new Entry[capacity];
+    }
+
+    /**
+     * Replays the buffered calls into {@code target} and forwards every later call to it.
+     */
+    synchronized void drainTo(ILog target) {
+        if (dropped > 0) {
+            target.w(LogConstants.TAG, dropped + " lines dropped before the logger was ready");
+        }
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries[(head + i) % entries.length];
+            replay(entry, "[logged at " + format.format(new Date(entry.time)) + "] ", target);
+            entries[(head + i) % entries.length] = null;
+        }
+        head = 0;
+        size = 0;
+        dropped = 0;
+        delegate = target;
+    }
+
+    private static void replay(Entry entry, String prefix, ILog target) {
+        if (entry.level == LEVEL_EXCEPTION) {
+            // e(Exception) takes no text, the same output with the time in front
+            target.e(LogConstants.TAG, prefix + Log.getStackTraceString(entry.exception));
+            return;
+        }
+        String tag = entry.tag;
+        String text = prefix + entry.text;
+        switch (entry.level) {
+            case Log.VERBOSE:
+                if (tag == null) {
+                    target.v(text);
+                } else {
+                    target.v(tag, text);
+                }
+                break;
+            case Log.DEBUG:
+                if (tag == null) {
+                    target.d(text);
+                } else {
+                    target.d(tag, text);
+                }
+                break;
+            case Log.INFO:
+                if (tag == null) {
+                    target.i(text);
+                } else {
+                    target.i(tag, text);
+                }
+                break;
+            case Log.WARN:
+                if (tag == null) {
+                    target.w(text);
+                } else {
+                    target.w(tag, text);
+                }
+                break;
+            default:
+                if (tag == null) {
+                    target.e(text);
+                } else {
+                    target.e(tag, text);
+                }
+                break;
+        }
+    }
+
+    /**
+     * @return false if the call was buffered, true if it must go to {@link #delegate}
+     */
+    private synchronized boolean add(int level, String tag, String text, Exception exception) {
+        if (delegate != null) {
+            return true;
+        }
+        Entry entry;
+        if (size == entries.length) {
+            // drop the oldest, reuse its slot
+            entry = entries[head];
+            head = (head + 1) % entries.length;
+            dropped++;
+        } else {
+            entry = new Entry();
+            size++;
+        }
+        entries[(head + size - 1) % entries.length] = entry;
+        entry.time = System.currentTimeMillis();
+        entry.level = level;
+        entry.tag = tag;
+        entry.text = text;
+        entry.exception = exception;
+        return false;
+    }
+
+    @Override
+    public void v(String tag, String text) {
+        if (add(Log.VERBOSE, tag, text, null)) {
+            delegate.v(tag, text);
+        }
+    }
+
+    @Override
+    public void d(String tag, String text) {
+        if (add(Log.DEBUG, tag, text, null)) {
+            delegate.d(tag, text);
+        }
+    }
+
+    @Override
+    public void i(String tag, String text) {
+        if (add(Log.INFO, tag, text, null)) {
+            delegate.i(tag, text);
+        }
+    }
+
+    @Override
+    public void w(String tag, String text) {
+        if (add(Log.WARN, tag, text, null)) {
+            delegate.w(tag, text);
+        }
+    }
+
+    @Override
+    public void e(String tag, String text) {
+        if (add(Log.ERROR, tag, text, null)) {
+            delegate.e(tag, text);
+        }
+    }
+
+    @Override
+    public void e(Exception e) {
+        if (add(LEVEL_EXCEPTION, null, null, e)) {
+            delegate.e(e);
+        }
+    }
+
+    @Override
+    public void v(String text) {
+        if (add(Log.VERBOSE, null, text, null)) {
+            delegate.v(text);
+        }
+    }
+
+    @Override
+    public void d(String text) {
+        if (add(Log.DEBUG, null, text, null)) {
+            delegate.d(text);
+        }
+    }
+
+    @Override
+    public void i(String text) {
+        if (add(Log.INFO, null, text, null)) {
+            delegate.i(text);
+        }
+    }
+
+    @Override
+    public void w(String text) {
+        if (add(Log.WARN, null, text, null)) {
+            delegate.w(text);
+        }
+    }
+
+    @Override
+    public void e(String text) {
+        if (add(Log.ERROR, null, text, null)) {
+            delegate.e(text);
+        }
+    }
+}
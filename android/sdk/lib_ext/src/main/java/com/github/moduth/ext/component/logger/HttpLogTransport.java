@@ -0,0 +1,83 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * {@link LogTransport} POSTing each archive as the raw request body, file name in a header.
+ */
+public class HttpLogTransport implements LogTransport {
+
+    public static final String HEADER_FILE_NAME = "X-Log-File";
+
+    private static final int TIMEOUT_MS = 30 * 1000;
+
+    private final String mUrl;
+
+    public HttpLogTransport(String url) {
+        mUrl = url;
+    }
+
+    @Override
+    public void upload(File archive) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(mUrl).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setFixedLengthStreamingMode((int) archive.length());
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty(HEADER_FILE_NAME, archive.getName());
+
+            InputStream in = new FileInputStream(archive);
+            OutputStream out = connection.getOutputStream();
+            try {
+                byte[] buffer = new byte[8 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+
+            int code = connection.getResponseCode();
+            if (code < 200 || code >= 300) {
+                throw new IOException("log upload failed, http " + code);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
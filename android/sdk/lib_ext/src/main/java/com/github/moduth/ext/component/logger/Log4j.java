@@ -26,53 +26,77 @@ package com.github.moduth.ext.component.logger;
 
 /**
  * Log4j wrapper
+ * <p/>
+ * 先问log4j该级别是否开启，关闭时不拼接 "[tag]" 前缀，调用几乎没有开销
  */
 class Log4j {
     private static LoggerFile.Log4jWrapper log4j = LoggerFile.getLog4j(LogConstants.TAG);
 
     // 带 TAG 标签
     public static void v(String tag, String text) {
-        log4j.trace("[" + tag + "]" + text);
+        if (log4j.isTraceEnabled()) {
+            log4j.trace(LogFormatter.tagged(tag, text));
+        }
     }
 
     public static void i(String tag, String text) {
-        log4j.info("[" + tag + "]" + text);
+        if (log4j.isInfoEnabled()) {
+            log4j.info(LogFormatter.tagged(tag, text));
+        }
     }
 
     public static void d(String tag, String text) {
-        log4j.debug("[" + tag + "]" + text);
+        if (log4j.isDebugEnabled()) {
+            log4j.debug(LogFormatter.tagged(tag, text));
+        }
     }
 
     public static void w(String tag, String text) {
-        log4j.warn("[" + tag + "]" + text);
+        if (log4j.isWarnEnabled()) {
+            log4j.warn(LogFormatter.tagged(tag, text));
+        }
     }
 
     public static void e(String tag, String text) {
-        log4j.error("[" + tag + "]" + text);
+        if (log4j.isErrorEnabled()) {
+            log4j.error(LogFormatter.tagged(tag, text));
+        }
     }
 
     public static void e(Exception e) {
-        log4j.error(e);
+        if (log4j.isErrorEnabled()) {
+            log4j.error(e);
+        }
     }
 
     // 不带TAG 标签
     public static void v(String text) {
-        log4j.trace("[" + LogConstants.TAG + "]" + text);
+        if (log4j.isTraceEnabled()) {
+            log4j.trace(LogFormatter.tagged(LogConstants.TAG, text));
+        }
     }
 
     public static void i(String text) {
-        log4j.info("[" + LogConstants.TAG + "]" + text);
+        if (log4j.isInfoEnabled()) {
+            log4j.info(LogFormatter.tagged(LogConstants.TAG, text));
+        }
     }
 
     public static void d(String text) {
-        log4j.debug("[" + LogConstants.TAG + "]" + text);
+        if (log4j.isDebugEnabled()) {
+            log4j.debug(LogFormatter.tagged(LogConstants.TAG, text));
+        }
     }
 
     public static void w(String text) {
-        log4j.warn("[" + LogConstants.TAG + "]" + text);
+        if (log4j.isWarnEnabled()) {
+            log4j.warn(LogFormatter.tagged(LogConstants.TAG, text));
+        }
     }
 
     public static void e(String text) {
-        log4j.error("[" + LogConstants.TAG + "]" + text);
+        if (log4j.isErrorEnabled()) {
+            log4j.error(LogFormatter.tagged(LogConstants.TAG, text));
+        }
     }
 }
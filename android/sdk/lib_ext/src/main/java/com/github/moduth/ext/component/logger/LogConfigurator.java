@@ -23,6 +23,7 @@
  */
 package com.github.moduth.ext.component.logger;
 
+import org.apache.log4j.Appender;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
@@ -47,6 +48,10 @@ class LogConfigurator {
     private int maxBackupSize = 5;
     private long maxFileSize = 512 * 1024;
     private boolean immediateFlush = true;
+    private boolean useMappedAppender = false;
+    private boolean useAsyncAppender = false;
+    private int asyncBufferSize = RingBufferAppender.DEFAULT_CAPACITY;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
     private boolean useLogCatAppender = false;
     private boolean useFileAppender = true;
     private boolean resetConfiguration = true;
@@ -129,20 +134,41 @@ class LogConfigurator {
 
     private void configureFileAppender() {
         final Logger root = Logger.getRootLogger();
-        final RollingFileAppender rollingFileAppender;
         final Layout fileLayout = new PatternLayout(getFilePattern());
-
-        try {
-            rollingFileAppender = new RollingFileAppender(fileLayout, getFileName());
-        } catch (final IOException e) {
-            throw new RuntimeException("Exception configuring log system", e);
+        Appender fileAppender = null;
+
+        if (isUseMappedAppender()) {
+            try {
+                fileAppender = new MappedSegmentAppender(fileLayout, getFileName(),
+                        getMaxFileSize(), getMaxBackupSize());
+            } catch (final IOException e) {
+                LogLog.warn("Can't map log segment, falling back to file appender", e);
+            }
         }
 
-        rollingFileAppender.setMaxBackupIndex(getMaxBackupSize());
-        rollingFileAppender.setMaximumFileSize(getMaxFileSize());
-        rollingFileAppender.setImmediateFlush(isImmediateFlush());
+        if (fileAppender == null) {
+            final RollingFileAppender rollingFileAppender;
+            try {
+                if (isUseAsyncAppender()) {
+                    rollingFileAppender = new BatchFileAppender(fileLayout, getFileName());
+                } else {
+                    rollingFileAppender = new RollingFileAppender(fileLayout, getFileName());
+                    rollingFileAppender.setImmediateFlush(isImmediateFlush());
+                }
+            } catch (final IOException e) {
+                throw new RuntimeException("Exception configuring log system", e);
+            }
+            rollingFileAppender.setMaxBackupIndex(getMaxBackupSize());
+            rollingFileAppender.setMaximumFileSize(getMaxFileSize());
+            fileAppender = rollingFileAppender;
+        }
 
-        root.addAppender(rollingFileAppender);
+        if (isUseAsyncAppender()) {
+            // formatting and writing move to the writer thread, whichever appender writes the file
+            root.addAppender(new RingBufferAppender(fileAppender, getAsyncBufferSize(), getOverflowPolicy()));
+        } else {
+            root.addAppender(fileAppender);
+        }
     }
 
     private void configureLogCatAppender() {
@@ -249,6 +275,61 @@ class LogConfigurator {
         this.immediateFlush = immediateFlush;
     }
 
+    /**
+     * Returns true, if the log file is written through a memory-mapped segment
+     *
+     * @return True, if {@link MappedSegmentAppender} is used
+     */
+    public boolean isUseMappedAppender() {
+        return useMappedAppender;
+    }
+
+    /**
+     * If set to true, the log file is written through a {@link MappedSegmentAppender} with
+     * maxFileSize as segment size. Falls back to a rolling file appender if mapping fails.
+     * Combines with {@link #setUseAsyncAppender(boolean)}, which then wraps the mapped appender.
+     *
+     * @param useMappedAppender If true, the log file is memory-mapped
+     */
+    public void setUseMappedAppender(final boolean useMappedAppender) {
+        this.useMappedAppender = useMappedAppender;
+    }
+
+    /**
+     * Returns true, if file events are handed to a {@link RingBufferAppender} and written on its own thread
+     *
+     * @return True, if file logging is asynchronous
+     */
+    public boolean isUseAsyncAppender() {
+        return useAsyncAppender;
+    }
+
+    /**
+     * If set to true, the file appender, mapped or not, is wrapped in a {@link RingBufferAppender}
+     * and immediateFlush is ignored
+     *
+     * @param useAsyncAppender If true, file logging is asynchronous
+     */
+    public void setUseAsyncAppender(final boolean useAsyncAppender) {
+        this.useAsyncAppender = useAsyncAppender;
+    }
+
+    public int getAsyncBufferSize() {
+        return asyncBufferSize;
+    }
+
+    public void setAsyncBufferSize(final int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     /**
      * Returns true, if FileAppender is used for logging
      *
@@ -38,4 +38,6 @@ class LogConstants {
     public static final String PATH = Environment.getExternalStorageDirectory() + "/com/github/moduth/";
     // log filename
     public static final String FILE_NAME = "petLover.log";
+    // binary log filename, see BinaryLogger
+    public static final String BINARY_FILE_NAME = "petLover.blog";
 }
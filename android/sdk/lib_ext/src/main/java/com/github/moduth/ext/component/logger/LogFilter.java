@@ -0,0 +1,197 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.github.moduth.ext.component.cache.sp.ConfigManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-tag rate limiting and sampling in front of {@link ILog}, checked by {@link Logger}
+ * before the message is built.
+ * <p/>
+ * 配置存放在 {@link ConfigManager#KEY_LOGGER}，修改后立即生效：
+ * <ul>
+ * <li>{@link #KEY_RATE_LIMIT}：每个tag每秒最多输出的行数，0为不限制</li>
+ * <li>{@link #KEY_RATE_LIMIT}.tag：单独指定某个tag的限制</li>
+ * <li>{@link #KEY_SAMPLE}.tag：该tag每N条只输出1条</li>
+ * <li>{@link #KEY_COLLECTION_LIMIT}：{@link Logger#wrapCollection}输出的最大字符数</li>
+ * </ul>
+ * error级别不受限制，被丢弃的行数在下一个时间窗口开始时以一条warn汇报。
+ */
+public final class LogFilter {
+
+    public static final String KEY_RATE_LIMIT = "rate_limit";
+    public static final String KEY_SAMPLE = "sample";
+    public static final String KEY_COLLECTION_LIMIT = "collection_limit";
+
+    private static final int DEFAULT_COLLECTION_LIMIT = 4 * 1024;
+    private static final long WINDOW_MS = 1000;
+
+    private static class Config {
+        int defaultRate;
+        int collectionLimit = DEFAULT_COLLECTION_LIMIT;
+        final Map<String, Integer> rates = new HashMap<>();
+        final Map<String, Integer> samples = new HashMap<>();
+
+        boolean isActive() {
+            return defaultRate > 0 || !rates.isEmpty() || !samples.isEmpty();
+        }
+    }
+
+    private static class TagState {
+        final int rate;
+        final int sample;
+        final AtomicInteger sampleCounter = new AtomicInteger();
+        long windowStart;
+        int count;
+        int suppressed;
+
+        TagState(int rate, int sample) {
+            this.rate = rate;
+            this.sample = sample;
+        }
+    }
+
+    private static volatile Config sConfig = new Config();
+    private static volatile boolean sActive;
+    private static volatile ConcurrentHashMap<String, TagState> sStates = new ConcurrentHashMap<>();
+
+    // SharedPreferences only keeps weak references to listeners
+    private static final SharedPreferences.OnSharedPreferenceChangeListener sListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                    load(preferences);
+                }
+            };
+
+    private LogFilter() {
+    }
+
+    /**
+     * Loads the configuration and follows later changes, ConfigManager must be initialized.
+     */
+    static void attach() {
+        SharedPreferences preferences = ConfigManager.getPreferences(ConfigManager.KEY_LOGGER);
+        preferences.registerOnSharedPreferenceChangeListener(sListener);
+        load(preferences);
+    }
+
+    static int getCollectionLimit() {
+        return sConfig.collectionLimit;
+    }
+
+    /**
+     * @return true if a line of {@code level} for {@code tag} may be logged now
+     */
+    static boolean accept(String tag, int level) {
+        if (!sActive || level >= Log.ERROR || tag == null) {
+            return true;
+        }
+        TagState state = sStates.get(tag);
+        if (state == null) {
+            Config config = sConfig;
+            Integer rate = config.rates.get(tag);
+            Integer sample = config.samples.get(tag);
+            state = new TagState(rate != null ? rate : config.defaultRate, sample != null ? sample : 1);
+            TagState existing = sStates.putIfAbsent(tag, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        if (state.sample > 1 && state.sampleCounter.getAndIncrement() % state.sample != 0) {
+            return false;
+        }
+        if (state.rate <= 0) {
+            return true;
+        }
+        int suppressed = 0;
+        boolean accepted;
+        synchronized (state) {
+            long now = SystemClock.uptimeMillis();
+            if (now - state.windowStart >= WINDOW_MS) {
+                state.windowStart = now;
+                state.count = 0;
+                suppressed = state.suppressed;
+                state.suppressed = 0;
+            }
+            accepted = state.count < state.rate;
+            if (accepted) {
+                state.count++;
+            } else {
+                state.suppressed++;
+            }
+        }
+        if (suppressed > 0) {
+            Logger.reportSuppressed(tag, suppressed);
+        }
+        return accepted;
+    }
+
+    private static void load(SharedPreferences preferences) {
+        Config config = new Config();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            String key = entry.getKey();
+            int value = toInt(entry.getValue());
+            if (value < 0) {
+                continue;
+            }
+            if (key.equals(KEY_RATE_LIMIT)) {
+                config.defaultRate = value;
+            } else if (key.equals(KEY_COLLECTION_LIMIT)) {
+                config.collectionLimit = value;
+            } else if (key.startsWith(KEY_RATE_LIMIT + ".")) {
+                config.rates.put(key.substring(KEY_RATE_LIMIT.length() + 1), value);
+            } else if (key.startsWith(KEY_SAMPLE + ".")) {
+                config.samples.put(key.substring(KEY_SAMPLE.length() + 1), value);
+            }
+        }
+        sConfig = config;
+        sStates = new ConcurrentHashMap<>();
+        sActive = config.isActive();
+    }
+
+    private static int toInt(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import java.util.Formattable;
+
+/**
+ * Formats log messages into a reusable per-thread {@link StringBuilder}.
+ * <p/>
+ * 支持 %s、%d、%n、%%，其余格式（如 %.2f、%5d）回退到 {@link String#format}，结果与原来一致。
+ */
+final class LogFormatter {
+
+    // builders grown past this are dropped instead of being kept per thread
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final ThreadLocal<Holder> sHolder = new ThreadLocal<Holder>() {
+        @Override
+        protected Holder initialValue() {
+            return new Holder();
+        }
+    };
+
+    private static class Holder {
+        StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+        boolean busy;
+    }
+
+    private LogFormatter() {
+    }
+
+    /**
+     * "[" + tag + "]" + text without a temporary builder per call
+     */
+    static String tagged(String tag, String text) {
+        Holder holder = sHolder.get();
+        if (holder.busy) {
+            return "[" + tag + "]" + text;
+        }
+        holder.busy = true;
+        try {
+            StringBuilder sb = reset(holder);
+            return sb.append('[').append(tag).append(']').append(text).toString();
+        } finally {
+            holder.busy = false;
+        }
+    }
+
+    static String format(String format, Object[] args) {
+        if (args == null || args.length == 0) {
+            return format(format, 0, null, null, null);
+        }
+        switch (args.length) {
+            case 1:
+                return format(format, 1, args[0], null, null);
+            case 2:
+                return format(format, 2, args[0], args[1], null);
+            case 3:
+                return format(format, 3, args[0], args[1], args[2]);
+            default:
+                return String.format(format, args);
+        }
+    }
+
+    static String format(String format, int argc, Object arg1, Object arg2, Object arg3) {
+        if (format == null) {
+            return "null";
+        }
+        Holder holder = sHolder.get();
+        // an argument's toString() logging on the same thread must not clobber our buffer
+        if (holder.busy) {
+            return fallback(format, argc, arg1, arg2, arg3);
+        }
+        holder.busy = true;
+        try {
+            StringBuilder sb = reset(holder);
+            int argIndex = 0;
+            int start = 0;
+            int length = format.length();
+            for (int i = 0; i < length; i++) {
+                if (format.charAt(i) != '%') {
+                    continue;
+                }
+                if (i + 1 >= length) {
+                    return fallback(format, argc, arg1, arg2, arg3);
+                }
+                sb.append(format, start, i);
+                char spec = format.charAt(++i);
+                switch (spec) {
+                    case '%':
+                        sb.append('%');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 's':
+                    case 'd':
+                        if (argIndex >= argc) {
+                            return fallback(format, argc, arg1, arg2, arg3);
+                        }
+                        Object arg = argIndex == 0 ? arg1 : argIndex == 1 ? arg2 : arg3;
+                        argIndex++;
+                        if (!appendArg(sb, spec, arg)) {
+                            return fallback(format, argc, arg1, arg2, arg3);
+                        }
+                        break;
+                    default:
+                        return fallback(format, argc, arg1, arg2, arg3);
+                }
+                start = i + 1;
+            }
+            sb.append(format, start, length);
+            return sb.toString();
+        } finally {
+            holder.busy = false;
+        }
+    }
+
+    private static boolean appendArg(StringBuilder sb, char spec, Object arg) {
+        if (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) {
+            sb.append(((Number) arg).longValue());
+            return true;
+        }
+        if (spec == 'd' || arg instanceof Formattable) {
+            // BigInteger, null, Formattable etc. keep String.format semantics
+            return false;
+        }
+        if (arg instanceof CharSequence) {
+            sb.append((CharSequence) arg);
+        } else if (arg instanceof Boolean) {
+            sb.append(((Boolean) arg).booleanValue());
+        } else if (arg instanceof Character) {
+            sb.append(((Character) arg).charValue());
+        } else {
+            sb.append(String.valueOf(arg));
+        }
+        return true;
+    }
+
+    private static StringBuilder reset(Holder holder) {
+        if (holder.builder.capacity() > MAX_RETAINED_CAPACITY) {
+            holder.builder = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            holder.builder.setLength(0);
+        }
+        return holder.builder;
+    }
+
+    private static String fallback(String format, int argc, Object arg1, Object arg2, Object arg3) {
+        switch (argc) {
+            case 0:
+                return String.format(format);
+            case 1:
+                return String.format(format, arg1);
+            case 2:
+                return String.format(format, arg1, arg2);
+            default:
+                return String.format(format, arg1, arg2, arg3);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Process;
+import android.util.Log;
+
+import com.github.moduth.ext.utils.NetWorkUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ships rolled log files to the backend in the background.
+ * <p/>
+ * 流程：
+ * <ol>
+ * <li>把 {@link LogConstants#PATH} 下已滚动的 .1 ~ .N 文件原子重命名到 upload/ 目录，
+ * 正在写的文件不动</li>
+ * <li>文本日志逐行经 {@link StackTraceDeduper} 流式写入gzip，重复的堆栈只保留hash；
+ * 二进制日志本身已压缩，原样上传</li>
+ * <li>只在wifi或充电且有网时通过 {@link LogTransport} 上传，成功后删除，失败留待下次</li>
+ * </ol>
+ * 全部在一个后台优先级的线程上串行执行，upload/ 目录超过 {@link #MAX_OUTBOX_BYTES}
+ * 时删除最旧的文件。
+ */
+public final class LogShipper {
+
+    private static final String OUTBOX_DIR = "upload";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // highest rolled index looked at, above any maxBackupSize in use
+    private static final int MAX_ROLLED_INDEX = 16;
+    private static final long MAX_OUTBOX_BYTES = 8 * 1024 * 1024;
+    private static final long INITIAL_DELAY_MINUTES = 1;
+    private static final long PERIOD_MINUTES = 30;
+
+    private static Context sContext;
+    private static LogTransport sTransport;
+    private static ScheduledExecutorService sExecutor;
+    private static volatile boolean sCharging;
+
+    private static final BroadcastReceiver sReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_POWER_CONNECTED.equals(action)) {
+                sCharging = true;
+            } else if (Intent.ACTION_POWER_DISCONNECTED.equals(action)) {
+                sCharging = false;
+            }
+            requestUpload();
+        }
+    };
+
+    private static final Runnable sPass = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                ship(new File(LogConstants.PATH), sTransport, canUpload());
+            } catch (Throwable t) {
+                Log.w(LogConstants.TAG, "log shipping failed", t);
+            }
+        }
+    };
+
+    private LogShipper() {
+    }
+
+    /**
+     * Starts periodic shipping, and an extra pass whenever the network or power state changes.
+     *
+     * @param context   any context, the application context is kept
+     * @param transport where the archives go
+     */
+    public static synchronized void start(Context context, LogTransport transport) {
+        if (sExecutor != null) {
+            return;
+        }
+        sContext = context.getApplicationContext();
+        sTransport = transport;
+        sExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "log-shipper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        Intent battery = sContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        sCharging = battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) > 0;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+        filter.addAction(Intent.ACTION_POWER_CONNECTED);
+        filter.addAction(Intent.ACTION_POWER_DISCONNECTED);
+        sContext.registerReceiver(sReceiver, filter);
+
+        sExecutor.scheduleWithFixedDelay(sPass, INITIAL_DELAY_MINUTES, PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void stop() {
+        if (sExecutor == null) {
+            return;
+        }
+        sContext.unregisterReceiver(sReceiver);
+        sExecutor.shutdown();
+        sExecutor = null;
+    }
+
+    /**
+     * Runs a shipping pass soon, it still waits for wifi or charging.
+     */
+    public static synchronized void requestUpload() {
+        if (sExecutor != null) {
+            sExecutor.execute(sPass);
+        }
+    }
+
+    private static boolean canUpload() {
+        int type = NetWorkUtils.getActiveNetworkType(sContext);
+        if (type == NetWorkUtils.NETWORK_TYPE_WIFI) {
+            return true;
+        }
+        return sCharging && type != NetWorkUtils.NETWORK_TYPE_NONE;
+    }
+
+    /**
+     * One shipping pass, package-private for tests.
+     *
+     * @param logDir    directory the loggers write to
+     * @param transport where the archives go
+     * @param online    whether uploading is allowed right now, claiming and packing happen anyway
+     */
+    static void ship(File logDir, LogTransport transport, boolean online) throws IOException {
+        File outbox = new File(logDir, OUTBOX_DIR);
+        if (!outbox.isDirectory() && !outbox.mkdirs()) {
+            return;
+        }
+        claim(logDir, outbox, LogConstants.FILE_NAME);
+        claim(logDir, outbox, LogConstants.BINARY_FILE_NAME);
+        pack(outbox);
+        trim(outbox);
+
+        if (!online) {
+            return;
+        }
+        for (File archive : sortedByAge(outbox)) {
+            if (archive.getName().endsWith(TEMP_SUFFIX)) {
+                continue;
+            }
+            try {
+                transport.upload(archive);
+            } catch (IOException e) {
+                Log.w(LogConstants.TAG, "log upload failed, retry later: " + e);
+                return;
+            }
+            archive.delete();
+        }
+    }
+
+    /**
+     * Moves rolled files into the outbox, oldest first. A rename is atomic, so the appender
+     * either still sees the old name or none at all.
+     */
+    private static void claim(File logDir, File outbox, String fileName) {
+        long now = System.currentTimeMillis();
+        for (int i = MAX_ROLLED_INDEX; i >= 1; i--) {
+            File rolled = new File(logDir, fileName + "." + i);
+            if (rolled.isFile()) {
+                // <time>.<order>.<name>, so the outbox sorts oldest first
+                String order = String.format(Locale.US, "%02d", MAX_ROLLED_INDEX - i);
+                rolled.renameTo(new File(outbox, now + "." + order + "." + fileName));
+            }
+        }
+    }
+
+    /**
+     * Compresses claimed text logs, the plain file is only removed once the archive is complete.
+     */
+    private static void pack(File outbox) throws IOException {
+        String textSuffix = "." + LogConstants.FILE_NAME;
+        for (File file : sortedByAge(outbox)) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // left by a killed pass, packed again from the plain file
+                file.delete();
+                continue;
+            }
+            if (!name.endsWith(textSuffix)) {
+                continue;
+            }
+            File archive = new File(outbox, name + GZIP_SUFFIX);
+            if (!archive.exists()) {
+                File temp = new File(outbox, name + GZIP_SUFFIX + TEMP_SUFFIX);
+                compress(file, temp);
+                if (!temp.renameTo(archive)) {
+                    throw new IOException("can't rename " + temp);
+                }
+            }
+            file.delete();
+        }
+    }
+
+    private static void compress(File source, File target) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(source), "UTF-8");
+        Writer out = null;
+        try {
+            out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(target), 8 * 1024), "UTF-8");
+            new StackTraceDeduper().copy(in, out);
+        } finally {
+            in.close();
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Keeps the outbox under {@link #MAX_OUTBOX_BYTES} while uploads can't happen.
+     */
+    private static void trim(File outbox) {
+        File[] files = sortedByAge(outbox);
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        for (int i = 0; i < files.length && total > MAX_OUTBOX_BYTES; i++) {
+            total -= files[i].length();
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Outbox names start with the claim time, see {@link #claim}.
+     */
+    private static File[] sortedByAge(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        return files;
+    }
+}
@@ -24,6 +24,8 @@
 
 package com.github.moduth.ext.component.logger;
 
+import org.apache.log4j.Level;
+
 class LogToFile extends LoggerFile.Log4jWrapper {
 
     private org.apache.log4j.Logger log4j = null;
@@ -151,4 +153,24 @@ class LogToFile extends LoggerFile.Log4jWrapper {
             //e.printStackTrace();
         }
     }
+
+    public boolean isTraceEnabled() {
+        return log4j.isTraceEnabled();
+    }
+
+    public boolean isDebugEnabled() {
+        return log4j.isDebugEnabled();
+    }
+
+    public boolean isInfoEnabled() {
+        return log4j.isInfoEnabled();
+    }
+
+    public boolean isWarnEnabled() {
+        return log4j.isEnabledFor(Level.WARN);
+    }
+
+    public boolean isErrorEnabled() {
+        return log4j.isEnabledFor(Level.ERROR);
+    }
 }
@@ -26,15 +26,15 @@ package com.github.moduth.ext.component.logger;
 
 import android.content.Context;
 import android.util.Log;
-import android.util.Pair;
 
 import com.github.moduth.ext.utils.ArrayUtils;
 import com.github.moduth.ext.utils.ObjectUtils;
 
+import java.lang.reflect.Array;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
+
+import static com.github.moduth.ext.component.logger.LogConstants.TAG;
 
 /**
  * LogProxy，unified log interface。
@@ -44,38 +44,100 @@ import java.util.Set;
  */
 public class Logger {
     // Use release Logger by default
-    private static ILog mLog = ReleaseLogger.getInstance();
+    private static volatile ILog mLog = ReleaseLogger.getInstance();
+    private static volatile int sLevel = Log.VERBOSE;
 
-    public static void init(Context context, ILog logImpl) {
+    /**
+     * 立即切换到内存缓存模式并返回，log4j 配置、日志文件打开和过滤配置的读取在后台线程完成，
+     * 之后缓存的日志按顺序写出
+     */
+    public static void init(Context context, final ILog logImpl) {
         if (logImpl == null) {
             throw new NullPointerException("log implementation == null");
         }
-        LoggerFile.configure(context);
-        mLog = logImpl;
+        final Context appContext = context.getApplicationContext();
+        final BufferedLog buffer = new BufferedLog(BufferedLog.DEFAULT_CAPACITY);
+        mLog = buffer;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // the binary logger writes its own files, log4j stays unconfigured
+                    if (!(logImpl instanceof BinaryLogger)) {
+                        LoggerFile.configure(appContext);
+                    }
+                    LogFilter.attach();
+                } finally {
+                    buffer.drainTo(logImpl);
+                    mLog = logImpl;
+                }
+            }
+        }, "logger-init").start();
+    }
+
+    /**
+     * 设置最低输出级别，低于该级别的调用在格式化和拼接参数之前就直接返回
+     *
+     * @param level one of {@link Log#VERBOSE} ... {@link Log#ERROR}
+     */
+    public static void setLevel(int level) {
+        sLevel = level;
+        LoggerFile.updateRootLevel();
+    }
+
+    public static int getLevel() {
+        return sLevel;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= sLevel;
+    }
+
+    /**
+     * Level check plus the per-tag rate limit and sampling of {@link LogFilter}
+     */
+    private static boolean accept(String tag, int level) {
+        return level >= sLevel && LogFilter.accept(tag, level);
+    }
+
+    static void reportSuppressed(String tag, int count) {
+        mLog.w(tag, count + " lines suppressed by rate limit");
     }
 
     public static void v(String tag, String text) {
-        mLog.v(tag, text);
+        if (accept(tag, Log.VERBOSE)) {
+            mLog.v(tag, text);
+        }
     }
 
     public static void v(String tag, Object object){
-        mLog.v(tag, wrapCollection(object));
+        if (accept(tag, Log.VERBOSE)) {
+            mLog.v(tag, wrapCollection(object));
+        }
     }
 
     public static void v(String tag, String text, Throwable tr) {
-        mLog.v(tag, text + '\n' + getStackTraceString(tr));
+        if (accept(tag, Log.VERBOSE)) {
+            mLog.v(tag, text + '\n' + getStackTraceString(tr));
+        }
     }
 
     public static void d(String tag, String text) {
-        mLog.d(tag, text);
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, text);
+        }
     }
 
     public static void d(String tag, Object object){
-        mLog.d(tag, wrapCollection(object));
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, wrapCollection(object));
+        }
     }
 
     public static void d(String tag, String text, Throwable tr) {
-        mLog.d(tag, text + '\n' + getStackTraceString(tr));
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, text + '\n' + getStackTraceString(tr));
+        }
     }
 
     /**
@@ -87,72 +149,202 @@ public class Logger {
      * @see android.util.Log#d(String, String)
      */
     public static void d(String tag, String format, Object... params) {
-        String msg = String.format(format, params);
-        Logger.d(tag, msg);
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, LogFormatter.format(format, params));
+        }
     }
 
     public static void i(String tag, String text) {
-        mLog.i(tag, text);
+        if (accept(tag, Log.INFO)) {
+            mLog.i(tag, text);
+        }
     }
 
     public static void i(String tag, Object object){
-        mLog.i(tag, wrapCollection(object));
+        if (accept(tag, Log.INFO)) {
+            mLog.i(tag, wrapCollection(object));
+        }
     }
 
     public static void i(String tag, String text, Throwable tr) {
-        mLog.i(tag, text + '\n' + getStackTraceString(tr));
+        if (accept(tag, Log.INFO)) {
+            mLog.i(tag, text + '\n' + getStackTraceString(tr));
+        }
     }
 
     public static void w(String tag, String text) {
-        mLog.w(tag, text);
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, text);
+        }
     }
 
     public static void w(String tag, Throwable tr) {
-        mLog.w(tag, getStackTraceString(tr));
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, getStackTraceString(tr));
+        }
     }
 
     public static void w(String tag, Object object){
-        mLog.w(tag, wrapCollection(object));
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, wrapCollection(object));
+        }
     }
 
     public static void w(String tag, String text, Throwable tr) {
-        mLog.w(tag, text + '\n' + getStackTraceString(tr));
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, text + '\n' + getStackTraceString(tr));
+        }
     }
 
     public static void e(String tag, String text, Throwable tr) {
-        mLog.e(tag, text + '\n' + getStackTraceString(tr));
+        if (accept(tag, Log.ERROR)) {
+            mLog.e(tag, text + '\n' + getStackTraceString(tr));
+        }
     }
 
     public static void e(String tag, Object object){
-        mLog.e(tag, wrapCollection(object));
+        if (accept(tag, Log.ERROR)) {
+            mLog.e(tag, wrapCollection(object));
+        }
     }
 
     public static void e(String tag, String text) {
-        mLog.e(tag, text);
+        if (accept(tag, Log.ERROR)) {
+            mLog.e(tag, text);
+        }
     }
 
     public static void e(Exception e) {
-        mLog.e(e);
+        if (accept(TAG, Log.ERROR)) {
+            mLog.e(e);
+        }
     }
 
     public static void v(String text) {
-        mLog.v(text);
+        if (accept(TAG, Log.VERBOSE)) {
+            mLog.v(text);
+        }
     }
 
     public static void d(String text) {
-        mLog.d(text);
+        if (accept(TAG, Log.DEBUG)) {
+            mLog.d(text);
+        }
     }
 
     public static void i(String text) {
-        mLog.i(text);
+        if (accept(TAG, Log.INFO)) {
+            mLog.i(text);
+        }
     }
 
     public static void w(String text) {
-        mLog.w(text);
+        if (accept(TAG, Log.WARN)) {
+            mLog.w(text);
+        }
     }
 
     public static void e(String text) {
-        mLog.e(text);
+        if (accept(TAG, Log.ERROR)) {
+            mLog.e(text);
+        }
+    }
+
+    /*
+     * Parameterised logging, format uses the %s / %d subset of String.format.
+     * The level is checked before anything is formatted, and the message is built in a
+     * per-thread StringBuilder, so a disabled call costs one volatile read and no allocation.
+     * A Throwable as the only argument resolves to the (tag, text, Throwable) overload.
+     */
+
+    public static void v(String tag, String format, Object arg1) {
+        if (accept(tag, Log.VERBOSE)) {
+            mLog.v(tag, LogFormatter.format(format, 1, arg1, null, null));
+        }
+    }
+
+    public static void v(String tag, String format, Object arg1, Object arg2) {
+        if (accept(tag, Log.VERBOSE)) {
+            mLog.v(tag, LogFormatter.format(format, 2, arg1, arg2, null));
+        }
+    }
+
+    public static void v(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (accept(tag, Log.VERBOSE)) {
+            mLog.v(tag, LogFormatter.format(format, 3, arg1, arg2, arg3));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1) {
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, LogFormatter.format(format, 1, arg1, null, null));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, LogFormatter.format(format, 2, arg1, arg2, null));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (accept(tag, Log.DEBUG)) {
+            mLog.d(tag, LogFormatter.format(format, 3, arg1, arg2, arg3));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1) {
+        if (accept(tag, Log.INFO)) {
+            mLog.i(tag, LogFormatter.format(format, 1, arg1, null, null));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2) {
+        if (accept(tag, Log.INFO)) {
+            mLog.i(tag, LogFormatter.format(format, 2, arg1, arg2, null));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (accept(tag, Log.INFO)) {
+            mLog.i(tag, LogFormatter.format(format, 3, arg1, arg2, arg3));
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1) {
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, LogFormatter.format(format, 1, arg1, null, null));
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2) {
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, LogFormatter.format(format, 2, arg1, arg2, null));
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (accept(tag, Log.WARN)) {
+            mLog.w(tag, LogFormatter.format(format, 3, arg1, arg2, arg3));
+        }
+    }
+
+    public static void e(String tag, String format, Object arg1) {
+        if (accept(tag, Log.ERROR)) {
+            mLog.e(tag, LogFormatter.format(format, 1, arg1, null, null));
+        }
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2) {
+        if (accept(tag, Log.ERROR)) {
+            mLog.e(tag, LogFormatter.format(format, 2, arg1, arg2, null));
+        }
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (accept(tag, Log.ERROR)) {
+            mLog.e(tag, LogFormatter.format(format, 3, arg1, arg2, arg3));
+        }
     }
 
     /**
@@ -164,6 +356,9 @@ public class Logger {
 
     /**
      * 把Object转化为String，方便输出到log中，支持Collection、Map、Array、Throwable
+     * <p/>
+     * Collection、Map、Array的输出长度受 {@link LogFilter#KEY_COLLECTION_LIMIT} 限制，
+     * 达到上限后不再遍历剩余元素
      *
      * @param object Collection、Map、Array、Throwable、或者任意其他Object（会用反射获取）
      * @return 可log的String
@@ -172,55 +367,78 @@ public class Logger {
         String message = null;
         if (object != null) {
             final String simpleName = object.getClass().getSimpleName();
+            final int limit = LogFilter.getCollectionLimit();
             if (object instanceof Throwable) {
                 message = getStackTraceString((Throwable) object);
             } else if (object instanceof String) {
                 message = (String) object;
             } else if (object.getClass().isArray()) {
-                String msg = "over two-dimension array not supported yet";
+                StringBuilder msg = new StringBuilder();
                 int dim = ArrayUtils.getArrayDimension(object);
                 switch (dim) {
-                    case 1:
-                        Pair pair = ArrayUtils.arrayToString(object);
-                        msg = simpleName.replace("[]", "[" + pair.first + "] {\n");
-                        msg += pair.second + "\n";
+                    case 1: {
+                        int length = Array.getLength(object);
+                        msg.append(simpleName.replace("[]", "[" + length + "] {\n"));
+                        appendArray(msg, object, limit);
+                        msg.append('\n');
                         break;
-                    case 2:
-                        Pair pair1 = ArrayUtils.arrayToObject(object);
-                        Pair pair2 = (Pair) pair1.first;
-                        msg = simpleName.replace("[][]", "[" + pair2.first + "][" + pair2.second + "] {\n");
-                        msg += pair1.second + "\n";
+                    }
+                    case 2: {
+                        int cross = Array.getLength(object);
+                        Object first = cross == 0 ? null : Array.get(object, 0);
+                        int vertical = first == null ? 0 : Array.getLength(first);
+                        msg.append(simpleName.replace("[][]", "[" + cross + "][" + vertical + "] {\n"));
+                        for (int i = 0; i < cross; i++) {
+                            if (msg.length() >= limit) {
+                                appendOmitted(msg, cross - i);
+                                break;
+                            }
+                            appendArray(msg, Array.get(object, i), limit);
+                            msg.append('\n');
+                        }
+                        msg.append('\n');
                         break;
+                    }
                     default:
+                        msg.append("over two-dimension array not supported yet");
                         break;
                 }
-                message = msg + "}";
+                message = msg.append('}').toString();
             } else if (object instanceof Collection) {
                 Collection collection = (Collection) object;
-                String msg = "%s size = %d [\n";
-                msg = String.format(msg, simpleName, collection.size());
-                if (!collection.isEmpty()) {
-                    Iterator<Object> iterator = collection.iterator();
-                    int flag = 0;
-                    while (iterator.hasNext()) {
-                        String itemString = "[%d]:%s%s";
-                        Object item = iterator.next();
-                        msg += String.format(itemString, flag, ObjectUtils.objectToString(item),
-                                flag++ < collection.size() - 1 ? ",\n" : "\n");
+                int size = collection.size();
+                StringBuilder msg = new StringBuilder();
+                msg.append(simpleName).append(" size = ").append(size).append(" [\n");
+                int flag = 0;
+                for (Object item : collection) {
+                    if (msg.length() >= limit) {
+                        appendOmitted(msg, size - flag);
+                        break;
                     }
+                    msg.append('[').append(flag).append("]:");
+                    appendCapped(msg, ObjectUtils.objectToString(item), limit);
+                    msg.append(flag++ < size - 1 ? ",\n" : "\n");
                 }
-                message = msg + "\n]";
+                message = msg.append("\n]").toString();
             } else if (object instanceof Map) {
-                String msg = simpleName + " {\n";
                 Map<Object, Object> map = (Map<Object, Object>) object;
-                Set<Object> keys = map.keySet();
-                for (Object key : keys) {
-                    String itemString = "[%s -> %s]\n";
-                    Object value = map.get(key);
-                    msg += String.format(itemString, ObjectUtils.objectToString(key),
-                            ObjectUtils.objectToString(value));
+                int size = map.size();
+                StringBuilder msg = new StringBuilder();
+                msg.append(simpleName).append(" {\n");
+                int count = 0;
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    if (msg.length() >= limit) {
+                        appendOmitted(msg, size - count);
+                        break;
+                    }
+                    msg.append('[');
+                    appendCapped(msg, ObjectUtils.objectToString(entry.getKey()), limit);
+                    msg.append(" -> ");
+                    appendCapped(msg, ObjectUtils.objectToString(entry.getValue()), limit);
+                    msg.append("]\n");
+                    count++;
                 }
-                message = msg + "}";
+                message = msg.append('}').toString();
             } else {
                 message = ObjectUtils.objectToString(object);
             }
@@ -230,4 +448,42 @@ public class Logger {
         }
         return message;
     }
+
+    /**
+     * Same text as {@link ArrayUtils#arrayToString}, stops once {@code limit} chars are reached
+     */
+    private static void appendArray(StringBuilder msg, Object array, int limit) {
+        if (array == null) {
+            msg.append("null");
+            return;
+        }
+        int length = Array.getLength(array);
+        boolean objects = array instanceof Object[];
+        msg.append('[');
+        for (int i = 0; i < length; i++) {
+            if (msg.length() >= limit) {
+                appendOmitted(msg, length - i);
+                return;
+            }
+            if (i > 0) {
+                msg.append(",\t");
+            }
+            Object item = Array.get(array, i);
+            appendCapped(msg, objects ? ObjectUtils.objectToString(item) : String.valueOf(item), limit);
+        }
+        msg.append(']');
+    }
+
+    private static void appendCapped(StringBuilder msg, String text, int limit) {
+        int room = Math.max(limit - msg.length(), 0);
+        if (text.length() <= room) {
+            msg.append(text);
+        } else {
+            msg.append(text, 0, room).append("...");
+        }
+    }
+
+    private static void appendOmitted(StringBuilder msg, int remaining) {
+        msg.append("... ").append(remaining).append(" more");
+    }
 }
\ No newline at end of file
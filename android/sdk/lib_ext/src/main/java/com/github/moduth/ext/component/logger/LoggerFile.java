@@ -27,6 +27,7 @@ package com.github.moduth.ext.component.logger;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.os.Environment;
+import android.util.Log;
 
 import com.github.moduth.ext.utils.FileUtils;
 
@@ -39,7 +40,26 @@ import java.io.File;
  */
 public class LoggerFile {
 
-    public static boolean hasConfigured = false;
+    public static volatile boolean hasConfigured = false;
+
+    private static volatile OverflowPolicy sOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Sets what the async file appender does when its buffer is full, takes effect on the next configure.
+     * Call it before {@link Logger#init}.
+     *
+     * @param policy overflow policy, {@link OverflowPolicy#DROP_OLDEST} by default
+     */
+    public static void setOverflowPolicy(OverflowPolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("policy == null");
+        }
+        sOverflowPolicy = policy;
+    }
+
+    public static OverflowPolicy getOverflowPolicy() {
+        return sOverflowPolicy;
+    }
 
     public static abstract class Log4jWrapper {
 
@@ -72,6 +92,16 @@ public class LoggerFile {
         public abstract void fatal(Object message, Throwable t);
 
         public abstract void fatal(Throwable t);
+
+        public abstract boolean isTraceEnabled();
+
+        public abstract boolean isDebugEnabled();
+
+        public abstract boolean isInfoEnabled();
+
+        public abstract boolean isWarnEnabled();
+
+        public abstract boolean isErrorEnabled();
     }
 
     public static boolean configure() {
@@ -81,8 +111,11 @@ public class LoggerFile {
 
         try {
             final LogConfigurator logConfigurator = new LogConfigurator();
+            logConfigurator.setUseMappedAppender(true);
+            logConfigurator.setUseAsyncAppender(true);
+            logConfigurator.setOverflowPolicy(sOverflowPolicy);
             logConfigurator.setFileName(LogConstants.PATH + LogConstants.FILE_NAME);
-            logConfigurator.setRootLevel(Level.ALL);
+            logConfigurator.setRootLevel(rootLevel());
             logConfigurator.setFilePattern("%d - [%p::%c] - %m%n");
             int flags = 0;
             // per file 5MB in debug mode, 512KB in release mode
@@ -115,9 +148,12 @@ public class LoggerFile {
 
             FileUtils.mkdirs(new File(LogConstants.PATH));
 
-            logConfigurator.setImmediateFlush(true);
+            // memory-mapped segment, or a rolling file if it can't be mapped, written on a background thread
+            logConfigurator.setUseMappedAppender(true);
+            logConfigurator.setUseAsyncAppender(true);
+            logConfigurator.setOverflowPolicy(sOverflowPolicy);
             logConfigurator.setFileName(LogConstants.PATH + LogConstants.FILE_NAME);
-            logConfigurator.setRootLevel(Level.ALL);
+            logConfigurator.setRootLevel(rootLevel());
             logConfigurator.setFilePattern("%d - [%p::%c] - %m%n");
             int flags = 0;
             try {
@@ -147,6 +183,35 @@ public class LoggerFile {
         return true;
     }
 
+    /**
+     * Applies {@link Logger#setLevel} to an already configured log4j.
+     */
+    static void updateRootLevel() {
+        if (hasConfigured) {
+            org.apache.log4j.Logger.getRootLogger().setLevel(rootLevel());
+        }
+    }
+
+    /**
+     * @return log4j level matching {@link Logger#getLevel()}, so the file log drops the same calls
+     */
+    private static Level rootLevel() {
+        switch (Logger.getLevel()) {
+            case Log.VERBOSE:
+                return Level.ALL;
+            case Log.DEBUG:
+                return Level.DEBUG;
+            case Log.INFO:
+                return Level.INFO;
+            case Log.WARN:
+                return Level.WARN;
+            case Log.ERROR:
+                return Level.ERROR;
+            default:
+                return Level.OFF;
+        }
+    }
+
     public static Log4jWrapper getLog4j(String str) {
         if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
             if (!hasConfigured) {
@@ -0,0 +1,365 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appender writing straight into a memory-mapped segment of the log file.
+ * <p/>
+ * 每条日志只是一次内存拷贝，没有write()系统调用；进程被杀或native crash时已写入的内容
+ * 仍在page cache中，由内核落盘。
+ * <p/>
+ * 后台线程始终预先映射好下一个段（.next文件），段写满时写日志的线程只是换用它；
+ * 旧段的force、截断到实际长度和按RollingFileAppender方式重命名为 .1 ~ .maxBackups
+ * 都在后台线程完成。旧段交出后写线程不再访问它的映射，之后才截断文件。
+ * <p/>
+ * 段中未写部分全为0（日志文本中的NUL会被替换），下次启动时二分查找第一个0字节即可
+ * 找回上次写到的位置并继续追加。
+ */
+class MappedSegmentAppender extends AppenderSkeleton {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // worst case UTF-8 bytes per char
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final String NEXT_SUFFIX = ".next";
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private final File file;
+    private final File nextFile;
+    private final int segmentSize;
+    private final int maxBackups;
+    private final CharsetEncoder encoder = UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final ExecutorService roller = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "logger-segment-roller");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private Segment current;
+    // spare segment mapped by the roller, ready once the previous roll over is finished
+    private Future<Segment> next;
+
+    /**
+     * @param layout      layout for each event
+     * @param fileName    current segment, rolled segments get a .1 .. .maxBackups suffix
+     * @param segmentSize bytes mapped per segment
+     * @param maxBackups  number of rolled segments kept
+     * @throws IOException if the segment can't be created or mapped
+     */
+    public MappedSegmentAppender(Layout layout, String fileName, long segmentSize, int maxBackups)
+            throws IOException {
+        setLayout(layout);
+        this.file = new File(fileName);
+        this.nextFile = new File(fileName + NEXT_SUFFIX);
+        this.segmentSize = (int) Math.min(segmentSize, Integer.MAX_VALUE);
+        this.maxBackups = maxBackups;
+        recoverNext();
+        current = openSegment(file, true);
+        next = roller.submit(new Callable<Segment>() {
+            @Override
+            public Segment call() throws IOException {
+                return openSegment(nextFile, false);
+            }
+        });
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        if (current == null) {
+            return;
+        }
+        write(layout.format(event));
+        if (layout.ignoresThrowable()) {
+            String[] lines = event.getThrowableStrRep();
+            if (lines != null) {
+                for (String line : lines) {
+                    write(line);
+                    write(Layout.LINE_SEP);
+                }
+            }
+        }
+    }
+
+    private void write(String text) {
+        if (current == null) {
+            return;
+        }
+        if (text.indexOf('\0') >= 0) {
+            // zero bytes mark the unwritten tail of a segment
+            text = text.replace('\0', ' ');
+        }
+        int maxChars = segmentSize / MAX_BYTES_PER_CHAR;
+        if (text.length() > maxChars) {
+            text = text.substring(0, maxChars);
+        }
+        try {
+            if (current.buffer.remaining() < text.length() * MAX_BYTES_PER_CHAR) {
+                rollOver();
+            }
+            encoder.reset();
+            encoder.encode(CharBuffer.wrap(text), current.buffer, true);
+            encoder.flush(current.buffer);
+        } catch (IOException e) {
+            LogLog.error("MappedSegmentAppender failed to roll over " + file, e);
+            current.close();
+            current = null;
+        }
+    }
+
+    /**
+     * Switches to the spare segment and leaves everything else to the roller: finishing the
+     * old segment, renaming the files and mapping the next spare.
+     */
+    private void rollOver() throws IOException {
+        final Segment old = current;
+        current = awaitNext();
+        next = roller.submit(new Callable<Segment>() {
+            @Override
+            public Segment call() throws IOException {
+                old.close();
+                shiftBackups();
+                if (!nextFile.renameTo(file)) {
+                    throw new IOException("can't rename " + nextFile);
+                }
+                // the mapping of the renamed file stays valid
+                return openSegment(nextFile, false);
+            }
+        });
+    }
+
+    /**
+     * Normally already done, the spare is mapped long before the current segment fills up.
+     */
+    private Segment awaitNext() throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return next.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IOException("can't prepare next segment", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Segment openSegment(File target, boolean append) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(target, "rw");
+        long existing = append ? raf.length() : 0;
+        if (existing > segmentSize) {
+            // left by the old RollingFileAppender or a bigger segment size
+            raf.close();
+            shiftBackups();
+            raf = new RandomAccessFile(target, "rw");
+            existing = 0;
+        }
+        if (!append) {
+            raf.setLength(0);
+        }
+        raf.setLength(segmentSize);
+        MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.position(existing == 0 ? 0 : findEnd(buffer, (int) existing));
+        return new Segment(raf, buffer);
+    }
+
+    /**
+     * A spare left by a previous process holds the newest lines if it was killed between taking
+     * the spare into use and renaming it, finish that roll over; otherwise the spare is unused.
+     */
+    private void recoverNext() throws IOException {
+        if (!nextFile.exists()) {
+            return;
+        }
+        boolean used;
+        RandomAccessFile raf = new RandomAccessFile(nextFile, "r");
+        try {
+            used = raf.length() > 0 && raf.read() > 0;
+        } finally {
+            raf.close();
+        }
+        if (!used) {
+            nextFile.delete();
+            return;
+        }
+        if (file.exists()) {
+            trimZeroTail(file);
+            shiftBackups();
+        }
+        if (!nextFile.renameTo(file)) {
+            throw new IOException("can't rename " + nextFile);
+        }
+    }
+
+    /**
+     * Recovers the write position of a segment left by a previous process: everything written
+     * is non-zero, the rest of the mapping is zero, so the first zero byte is the end.
+     */
+    private static int findEnd(MappedByteBuffer buffer, int limit) {
+        int low = 0;
+        int high = limit;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.get(mid) == 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Same search as {@link #findEnd} without mapping, for a segment that is about to be rolled.
+     */
+    private static void trimZeroTail(File target) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(target, "rw");
+        try {
+            long low = 0;
+            long high = raf.length();
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                raf.seek(mid);
+                if (raf.read() == 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            raf.setLength(low);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void shiftBackups() {
+        String path = file.getPath();
+        new File(path + "." + maxBackups).delete();
+        for (int i = maxBackups - 1; i >= 1; i--) {
+            File from = new File(path + "." + i);
+            if (from.exists()) {
+                from.renameTo(new File(path + "." + (i + 1)));
+            }
+        }
+        if (maxBackups > 0) {
+            file.renameTo(new File(path + ".1"));
+        } else {
+            file.delete();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        roller.shutdown();
+        try {
+            roller.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        if (next.isDone()) {
+            try {
+                next.get().close();
+                nextFile.delete();
+            } catch (InterruptedException | ExecutionException e) {
+                // nothing was mapped
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return true;
+    }
+
+    /**
+     * A mapped segment file, once handed to {@link #close()} nobody touches the mapping again.
+     */
+    private static final class Segment {
+        final RandomAccessFile raf;
+        MappedByteBuffer buffer;
+
+        Segment(RandomAccessFile raf, MappedByteBuffer buffer) {
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Cuts the zero tail off so a closed segment is plain text again. The mapping is forced
+         * and dropped before the file shrinks.
+         */
+        void close() {
+            try {
+                int end = buffer.position();
+                buffer.force();
+                buffer = null;
+                raf.setLength(end);
+                raf.close();
+            } catch (IOException e) {
+                LogLog.warn("MappedSegmentAppender failed to close segment", e);
+            }
+        }
+    }
+}
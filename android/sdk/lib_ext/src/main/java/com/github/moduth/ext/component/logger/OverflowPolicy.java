@@ -0,0 +1,45 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+/**
+ * What {@link RingBufferAppender} does with a new event when its ring buffer is full,
+ * set through {@link LoggerFile#setOverflowPolicy(OverflowPolicy)}.
+ */
+public enum OverflowPolicy {
+    /**
+     * Overwrite the oldest pending event, the caller never waits.
+     */
+    DROP_OLDEST,
+    /**
+     * Block the caller until the writer thread frees a slot, nothing is lost.
+     */
+    BLOCK,
+    /**
+     * Keep every warn-or-higher event and one out of {@link RingBufferAppender#SAMPLE_RATE}
+     * of the rest, each kept event overwrites the oldest pending one.
+     */
+    SAMPLE
+}
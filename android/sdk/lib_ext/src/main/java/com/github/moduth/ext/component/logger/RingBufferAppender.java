@@ -0,0 +1,243 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous appender，调用线程只把event放进预分配的环形缓冲区，
+ * 由唯一的写线程批量交给被包装的appender，每批结束后flush一次。
+ * <p/>
+ * 缓冲区满时的处理见{@link OverflowPolicy}。
+ */
+class RingBufferAppender extends AppenderSkeleton {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int SAMPLE_RATE = 8;
+
+    private static final int BATCH_SIZE = 64;
+    private static final long IDLE_FLUSH_MS = 1000;
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private final Appender delegate;
+    private final OverflowPolicy policy;
+
+    private final LoggingEvent[] ring;
+    private final LoggingEvent[] batch = new LoggingEvent[BATCH_SIZE];
+    private final int mask;
+    private int head;
+    private int count;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int overflowed;
+    private long dropped;
+    private long reportedDropped;
+    private volatile boolean running = true;
+
+    private final Thread writer;
+
+    /**
+     * @param delegate appender actually writing the events, only touched by the writer thread
+     * @param capacity ring buffer size, rounded up to a power of two
+     * @param policy   what to do when the buffer is full
+     */
+    public RingBufferAppender(Appender delegate, int capacity, OverflowPolicy policy) {
+        this.delegate = delegate;
+        this.policy = policy == null ? OverflowPolicy.DROP_OLDEST : policy;
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        ring = new LoggingEvent[size];
+        mask = size - 1;
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "logger-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        if (!running) {
+            return;
+        }
+        // capture what would otherwise be resolved lazily on the writer thread
+        event.getThreadName();
+        event.getMDCCopy();
+
+        lock.lock();
+        try {
+            if (count == ring.length) {
+                switch (policy) {
+                    case BLOCK:
+                        while (count == ring.length && running) {
+                            notFull.awaitUninterruptibly();
+                        }
+                        if (!running) {
+                            return;
+                        }
+                        break;
+                    case SAMPLE:
+                        if (!event.getLevel().isGreaterOrEqual(Level.WARN)
+                                && overflowed++ % SAMPLE_RATE != 0) {
+                            dropped++;
+                            return;
+                        }
+                        evictOldest();
+                        break;
+                    case DROP_OLDEST:
+                    default:
+                        evictOldest();
+                        break;
+                }
+            }
+            ring[(head + count) & mask] = event;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictOldest() {
+        ring[head] = null;
+        head = (head + 1) & mask;
+        count--;
+        dropped++;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int n;
+            long lost;
+            lock.lock();
+            try {
+                if (count == 0 && running) {
+                    try {
+                        notEmpty.await(IDLE_FLUSH_MS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ignored) {
+                        // closing, drain whatever is left
+                    }
+                }
+                if (count == 0 && !running) {
+                    break;
+                }
+                n = Math.min(count, BATCH_SIZE);
+                for (int i = 0; i < n; i++) {
+                    batch[i] = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) & mask;
+                }
+                count -= n;
+                if (n > 0) {
+                    overflowed = 0;
+                    notFull.signalAll();
+                }
+                lost = dropped - reportedDropped;
+                reportedDropped = dropped;
+            } finally {
+                lock.unlock();
+            }
+
+            if (lost > 0) {
+                delegate.doAppend(new LoggingEvent(RingBufferAppender.class.getName(),
+                        Logger.getLogger(LogConstants.TAG), Level.WARN,
+                        "[" + LogConstants.TAG + "]" + lost + " log events dropped, buffer full", null));
+            }
+            for (int i = 0; i < n; i++) {
+                try {
+                    delegate.doAppend(batch[i]);
+                } catch (Exception e) {
+                    LogLog.error("RingBufferAppender failed to append", e);
+                }
+                batch[i] = null;
+            }
+            if (n > 0 || lost > 0) {
+                flushDelegate();
+            }
+        }
+        flushDelegate();
+    }
+
+    private void flushDelegate() {
+        if (delegate instanceof BatchFileAppender) {
+            ((BatchFileAppender) delegate).flush();
+        }
+    }
+
+    /**
+     * @return number of events dropped or sampled away since start
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+}
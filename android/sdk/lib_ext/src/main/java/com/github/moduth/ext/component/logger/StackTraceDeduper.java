@@ -0,0 +1,95 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.component.logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Copies a text log line by line, replacing stack traces already seen in the same archive
+ * by a reference to their hash.
+ * <p/>
+ * 第一次出现的堆栈前加一行 {@code \t[trace#hash]}，之后重复出现时只输出
+ * {@code \t[trace#hash repeated]}，堆栈的第一行（异常类名和message）总是保留。
+ */
+class StackTraceDeduper {
+
+    private final Set<Long> mSeen = new HashSet<>();
+    private final StringBuilder mTrace = new StringBuilder();
+    private long mHash;
+
+    void copy(Reader source, Writer sink) throws IOException {
+        BufferedReader reader = new BufferedReader(source, 8 * 1024);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (isTraceLine(line)) {
+                mTrace.append(line).append('\n');
+                mHash = fnv1a(mHash, line);
+            } else {
+                flushTrace(sink);
+                sink.write(line);
+                sink.write('\n');
+            }
+        }
+        flushTrace(sink);
+    }
+
+    private void flushTrace(Writer sink) throws IOException {
+        if (mTrace.length() == 0) {
+            return;
+        }
+        String id = Long.toHexString(mHash);
+        if (mSeen.add(mHash)) {
+            sink.write("\t[trace#" + id + "]\n");
+            sink.append(mTrace);
+        } else {
+            sink.write("\t[trace#" + id + " repeated]\n");
+        }
+        mTrace.setLength(0);
+        mHash = 0;
+    }
+
+    private static boolean isTraceLine(String line) {
+        return line.startsWith("\t") || line.startsWith("Caused by: ") || line.startsWith("Suppressed: ");
+    }
+
+    private static long fnv1a(long hash, String line) {
+        if (hash == 0) {
+            hash = 0xcbf29ce484222325L;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            hash ^= line.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // line separator, so "a" + "bc" and "ab" + "c" differ
+        hash ^= '\n';
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.ext.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+
+import com.github.moduth.ext.Ext;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 缓存当前网络类型，网络变化时通过广播更新并通知监听者，
+ * 避免每次都调用 {@link NetWorkUtils#getActiveNetworkType(Context)} 做 binder 调用。
+ * <p>
+ * @author markzhai
+ */
+public final class NetworkMonitor {
+
+    private static final int TYPE_UNINITIALIZED = Integer.MIN_VALUE;
+
+    private static volatile int sNetworkType = TYPE_UNINITIALIZED;
+
+    private static final CopyOnWriteArrayList<OnNetworkChangedListener> sListeners
+            = new CopyOnWriteArrayList<>();
+
+    private final static Singleton<BroadcastReceiver, Void> sReceiver = new Singleton<BroadcastReceiver, Void>() {
+        @Override
+        protected BroadcastReceiver create(Void param) {
+            return new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    onNetworkChanged(context);
+                }
+            };
+        }
+    };
+    private static volatile boolean sReceiverRegistered = false;
+
+    public interface OnNetworkChangedListener {
+        /**
+         * @param networkType 变化后的网络类型，取值见 {@link NetWorkUtils#getActiveNetworkType(Context)}
+         */
+        void onNetworkChanged(int networkType);
+    }
+
+    private NetworkMonitor() {
+        // static usage.
+    }
+
+    /**
+     * @return 缓存的当前网络类型，取值见 {@link NetWorkUtils#getActiveNetworkType(Context)}
+     */
+    public static int getNetworkType() {
+        if (sNetworkType == TYPE_UNINITIALIZED) {
+            Context context = Ext.getContext();
+            registerReceiverIfNeeded(context);
+            sNetworkType = NetWorkUtils.getActiveNetworkType(context);
+        }
+        return sNetworkType;
+    }
+
+    public static boolean isWifi() {
+        return getNetworkType() == NetWorkUtils.NETWORK_TYPE_WIFI;
+    }
+
+    public static boolean isConnected() {
+        return getNetworkType() != NetWorkUtils.NETWORK_TYPE_NONE;
+    }
+
+    public static void addListener(OnNetworkChangedListener listener) {
+        registerReceiverIfNeeded(Ext.getContext());
+        sListeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(OnNetworkChangedListener listener) {
+        sListeners.remove(listener);
+    }
+
+    /**
+     * @return 网络类型的简短描述，如 wifi、4g，用于请求头或日志
+     */
+    public static String getNetworkName(int networkType) {
+        switch (networkType) {
+            case NetWorkUtils.NETWORK_TYPE_WIFI:
+                return "wifi";
+            case NetWorkUtils.NETWORK_TYPE_4G:
+                return "4g";
+            case NetWorkUtils.NETWORK_TYPE_3G:
+                return "3g";
+            case NetWorkUtils.NETWORK_TYPE_2G:
+                return "2g";
+            case NetWorkUtils.NETWORK_TYPE_UNKNOWN_MOBILE:
+                return "mobile";
+            case NetWorkUtils.NETWORK_TYPE_NONE:
+                return "none";
+            default:
+                return "unknown";
+        }
+    }
+
+    static void onNetworkChanged(Context context) {
+        int networkType = NetWorkUtils.getActiveNetworkType(context);
+        if (networkType == sNetworkType) {
+            return;
+        }
+        sNetworkType = networkType;
+        for (OnNetworkChangedListener listener : sListeners) {
+            listener.onNetworkChanged(networkType);
+        }
+    }
+
+    private static void registerReceiverIfNeeded(Context context) {
+        if (sReceiverRegistered) {
+            return;
+        }
+        if (context == null || context.getApplicationContext() == null) {
+            return;
+        }
+        synchronized (sReceiver) {
+            if (sReceiverRegistered) {
+                return;
+            }
+            IntentFilter filter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
+            context.getApplicationContext().registerReceiver(sReceiver.get(null), filter);
+            sReceiverRegistered = true;
+        }
+    }
+}
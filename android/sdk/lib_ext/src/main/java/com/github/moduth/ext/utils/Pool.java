@@ -25,6 +25,8 @@
 package com.github.moduth.ext.utils;
 
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 一个抽象的池，定义了固定的大小，可以获得或回收对应object
@@ -104,6 +106,16 @@ public abstract class Pool<T> {
         return new ThreadLocalPool<T>(capacity);
     }
 
+    /**
+     * Create a lock-free thread-safe pool, striped per cpu core.
+     *
+     * @param capacity Capacity of this pool, must be positive.
+     * @return A newly created lock-free thread-safe pool.
+     */
+    public static <T> Pool<T> atomicPool(int capacity) {
+        return new AtomicPool<T>(capacity);
+    }
+
     public static class SimplePool<T> extends Pool<T> {
 
         private final LinkedList<T> mList = new LinkedList<T>();
@@ -194,4 +206,122 @@ public abstract class Pool<T> {
             return array.size() <= 0 ? create() : array.poll();
         }
     }
+
+    /**
+     * A lock-free thread-safe pool on a fixed array of slots, get and put neither lock nor allocate.
+     * <p>
+     * 槽位按cpu核数分成若干段，线程按id落到自己的段上，用CAS取放；自己的段空了（或满了）再去其它段，
+     * 所以不同线程之间也能复用。每段之间隔开一个cache line，避免伪共享。
+     */
+    public static class AtomicPool<T> extends Pool<T> {
+
+        // 64 byte cache line, counted in 4 byte references and 8 byte longs
+        private static final int REFS_PER_LINE = 16;
+        private static final int LONGS_PER_LINE = 8;
+        private static final int HIT = 0;
+        private static final int MISS = 1;
+
+        private final AtomicReferenceArray<T> mSlots;
+        // hit and miss counters of each stripe, one cache line apart
+        private final AtomicLongArray mStats;
+        private final int mStripes;
+        // the first mRemainder stripes hold one slot more, so the total is exactly the capacity
+        private final int mStripeSize;
+        private final int mRemainder;
+        private final int mStride;
+
+        public AtomicPool(int capacity) {
+            this(capacity, CpuUtils.getNumCores());
+        }
+
+        /**
+         * @param stripes Number of independent stripes, 1 for a single shared array.
+         */
+        public AtomicPool(int capacity, int stripes) {
+            super(capacity);
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            }
+            mStripes = Math.max(1, Math.min(stripes, capacity));
+            mStripeSize = capacity / mStripes;
+            mRemainder = capacity % mStripes;
+            mStride = (mStripeSize + 1 + REFS_PER_LINE - 1) / REFS_PER_LINE * REFS_PER_LINE;
+            mSlots = new AtomicReferenceArray<T>(mStride * mStripes);
+            mStats = new AtomicLongArray(LONGS_PER_LINE * mStripes);
+        }
+
+        @Override
+        public void put(T item) {
+            if (item == null) {
+                return;
+            }
+            int home = stripe();
+            for (int i = 0; i < mStripes; i++) {
+                int stripe = (home + i) % mStripes;
+                int base = stripe * mStride;
+                for (int j = base, end = base + sizeOf(stripe); j < end; j++) {
+                    if (mSlots.get(j) == null && mSlots.compareAndSet(j, null, item)) {
+                        return;
+                    }
+                }
+            }
+            // full, dropped
+        }
+
+        @Override
+        public T get() {
+            int home = stripe();
+            for (int i = 0; i < mStripes; i++) {
+                int stripe = (home + i) % mStripes;
+                int base = stripe * mStride;
+                for (int j = base, end = base + sizeOf(stripe); j < end; j++) {
+                    T item = mSlots.get(j);
+                    if (item != null && mSlots.compareAndSet(j, item, null)) {
+                        count(home * LONGS_PER_LINE + HIT);
+                        return item;
+                    }
+                }
+            }
+            count(home * LONGS_PER_LINE + MISS);
+            return create();
+        }
+
+        /**
+         * 统计只是个大概：计数器不用CAS（{@code incrementAndGet}每次调用都是一次带锁前缀的读改写），
+         * 而是读出来加一再{@code lazySet}回去。同一段上的线程并发时可能丢几次计数，换来热路径上没有额外的原子操作。
+         */
+        private void count(int index) {
+            mStats.lazySet(index, mStats.get(index) + 1);
+        }
+
+        /**
+         * @return Approximate number of {@link #get()} calls served from the pool.
+         */
+        public long hitCount() {
+            return sum(HIT);
+        }
+
+        /**
+         * @return Approximate number of {@link #get()} calls that found the pool empty.
+         */
+        public long missCount() {
+            return sum(MISS);
+        }
+
+        private long sum(int counter) {
+            long total = 0;
+            for (int i = 0; i < mStripes; i++) {
+                total += mStats.get(i * LONGS_PER_LINE + counter);
+            }
+            return total;
+        }
+
+        private int sizeOf(int stripe) {
+            return stripe < mRemainder ? mStripeSize + 1 : mStripeSize;
+        }
+
+        private int stripe() {
+            return (int) (Thread.currentThread().getId() % mStripes);
+        }
+    }
 }
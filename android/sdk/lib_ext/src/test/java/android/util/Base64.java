@@ -0,0 +1,24 @@
+package android.util;
+
+/**
+ * The mockable android.jar stubs Base64 out, this delegates to the JDK for unit tests.
+ */
+public class Base64 {
+
+    public static final int DEFAULT = 0;
+    public static final int NO_WRAP = 2;
+
+    public static String encodeToString(byte[] input, int flags) {
+        return encodeToString(input, 0, input.length, flags);
+    }
+
+    public static String encodeToString(byte[] input, int offset, int len, int flags) {
+        byte[] slice = new byte[len];
+        System.arraycopy(input, offset, slice, 0, len);
+        return java.util.Base64.getEncoder().encodeToString(slice);
+    }
+
+    public static byte[] decode(String str, int flags) {
+        return java.util.Base64.getDecoder().decode(str);
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.moduth.ext.component.cache.sp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CredentialCipherTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    static CredentialCipher keyStoreCipher() {
+        // the same wire format as AndroidKeyStore, with the provider choosing the nonce
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) 7);
+        return new CredentialCipher(CredentialCipher.VERSION_KEY_STORE, new SecretKeySpec(key, "AES"), true);
+    }
+
+    @Test
+    public void roundTripWithFileKey() throws Exception {
+        CredentialCipher cipher = CredentialCipher.fromFile(new File(mFolder.getRoot(), "secure/credential.key"), true);
+        byte[] data = cipher.encrypt("token", "abc中😀");
+        assertEquals(CredentialCipher.VERSION_FILE_KEY, data[0]);
+        assertEquals("abc中😀", cipher.decrypt("token", data));
+        assertEquals("", cipher.decrypt("empty", cipher.encrypt("empty", "")));
+    }
+
+    @Test
+    public void roundTripWithKeyStoreVersion() throws Exception {
+        CredentialCipher cipher = keyStoreCipher();
+        byte[] data = cipher.encrypt("token", "abc");
+        assertEquals(CredentialCipher.VERSION_KEY_STORE, data[0]);
+        assertEquals("abc", cipher.decrypt("token", data));
+    }
+
+    @Test
+    public void eachValueGetsItsOwnNonce() throws Exception {
+        CredentialCipher cipher = keyStoreCipher();
+        assertFalse(Arrays.equals(cipher.encrypt("token", "abc"), cipher.encrypt("token", "abc")));
+    }
+
+    @Test
+    public void valueIsBoundToItsKey() throws Exception {
+        CredentialCipher cipher = keyStoreCipher();
+        byte[] data = cipher.encrypt("token", "abc");
+        assertNull(cipher.decrypt("mobile", data));
+        assertNull(cipher.decrypt("toke", data));
+    }
+
+    @Test
+    public void tamperedDataIsRejected() throws Exception {
+        CredentialCipher cipher = keyStoreCipher();
+        byte[] data = cipher.encrypt("token", "abc");
+        for (int i = 1; i < data.length; i++) {
+            byte[] tampered = data.clone();
+            tampered[i] ^= 1;
+            assertNull(cipher.decrypt("token", tampered));
+        }
+        assertNull(cipher.decrypt("token", Arrays.copyOf(data, data.length - 1)));
+        assertNull(cipher.decrypt("token", new byte[]{CredentialCipher.VERSION_KEY_STORE}));
+        assertNull(cipher.decrypt("token", null));
+    }
+
+    @Test
+    public void otherVersionIsNotDecrypted() throws Exception {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) 7);
+        CredentialCipher fileVersion = new CredentialCipher(CredentialCipher.VERSION_FILE_KEY,
+                new SecretKeySpec(key, "AES"), true);
+        byte[] data = keyStoreCipher().encrypt("token", "abc");
+        assertNull(fileVersion.decrypt("token", data));
+    }
+
+    @Test
+    public void secretFileIsReused() throws Exception {
+        File secret = new File(mFolder.getRoot(), "secure/credential.key");
+        byte[] data = CredentialCipher.fromFile(secret, true).encrypt("token", "abc");
+        assertTrue(secret.isFile());
+
+        assertEquals("abc", CredentialCipher.fromFile(secret, true).decrypt("token", data));
+        // another secret derives another key
+        File other = new File(mFolder.getRoot(), "other/credential.key");
+        assertNull(CredentialCipher.fromFile(other, true).decrypt("token", data));
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.moduth.ext.component.cache.sp;
+
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+import android.util.Base64;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class CredentialStoreTest {
+
+    @ClassRule
+    public static TemporaryFolder sFolder = new TemporaryFolder();
+
+    private CredentialCipher mKeyStoreCipher;
+    private CredentialCipher mFileCipher;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.init(new ContextWrapper(null) {
+            @Override
+            public File getFilesDir() {
+                return sFolder.getRoot();
+            }
+
+            @Override
+            public SharedPreferences getSharedPreferences(String name, int mode) {
+                return null;
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mKeyStoreCipher = CredentialCipherTest.keyStoreCipher();
+        mFileCipher = CredentialCipher.fromFile(new File(sFolder.getRoot(), "secure/credential.key"), true);
+        CredentialStore.setCiphers(mKeyStoreCipher, mFileCipher);
+    }
+
+    @Test
+    public void migratesPlainValueFromAccount() {
+        ConfigManager.putString("migrated", "abc", ConfigManager.KEY_ACCOUNT);
+
+        assertEquals("abc", CredentialStore.getString("migrated", null));
+        assertNull(ConfigManager.getString("migrated", null, ConfigManager.KEY_ACCOUNT));
+        byte[] stored = stored("migrated");
+        assertEquals(CredentialCipher.VERSION_KEY_STORE, stored[0]);
+        assertEquals("abc", mKeyStoreCipher.decrypt("migrated", stored));
+
+        CredentialStore.setCiphers(mKeyStoreCipher, mFileCipher);
+        assertEquals("abc", CredentialStore.getString("migrated", null));
+    }
+
+    @Test
+    public void rewritesFileKeyValueWithKeyStore() throws Exception {
+        ConfigManager.putString("upgraded", encode(mFileCipher.encrypt("upgraded", "138")), ConfigManager.KEY_SECURE);
+
+        assertEquals("138", CredentialStore.getString("upgraded", null));
+        byte[] stored = stored("upgraded");
+        assertEquals(CredentialCipher.VERSION_KEY_STORE, stored[0]);
+        assertEquals("138", mKeyStoreCipher.decrypt("upgraded", stored));
+    }
+
+    @Test
+    public void fileKeyIsUsedWithoutKeyStore() {
+        CredentialStore.setCiphers(mFileCipher, mFileCipher);
+        CredentialStore.putString("fallback", "xyz");
+
+        CredentialStore.setCiphers(mFileCipher, mFileCipher);
+        assertEquals("xyz", CredentialStore.getString("fallback", null));
+        assertEquals(CredentialCipher.VERSION_FILE_KEY, stored("fallback")[0]);
+    }
+
+    @Test
+    public void valueMovedToAnotherKeyIsIgnored() throws Exception {
+        ConfigManager.putString("moved", encode(mKeyStoreCipher.encrypt("original", "abc")), ConfigManager.KEY_SECURE);
+
+        assertEquals("none", CredentialStore.getString("moved", "none"));
+        assertFalse(CredentialStore.contains("moved"));
+    }
+
+    @Test
+    public void editorWritesAndRemoves() {
+        CredentialStore.edit().putString("first", "1").putString("second", "2").apply();
+
+        CredentialStore.setCiphers(mKeyStoreCipher, mFileCipher);
+        assertEquals("1", CredentialStore.getString("first", null));
+        assertEquals("2", CredentialStore.getString("second", null));
+
+        CredentialStore.edit().remove("first").putString("second", null).apply();
+        assertFalse(CredentialStore.contains("first"));
+        assertFalse(CredentialStore.contains("second"));
+        assertFalse(ConfigManager.contains("first", ConfigManager.KEY_SECURE));
+        assertEquals("none", CredentialStore.getString("second", "none"));
+    }
+
+    private static byte[] stored(String key) {
+        return Base64.decode(ConfigManager.getString(key, null, ConfigManager.KEY_SECURE), Base64.NO_WRAP);
+    }
+
+    private static String encode(byte[] data) {
+        return Base64.encodeToString(data, Base64.NO_WRAP);
+    }
+}
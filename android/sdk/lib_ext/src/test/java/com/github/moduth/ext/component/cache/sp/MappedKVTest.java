@@ -0,0 +1,173 @@
+package com.github.moduth.ext.component.cache.sp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedKVTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = new File(mFolder.getRoot(), "prefs.kv");
+    }
+
+    @Test
+    public void replaysEveryRecordType() throws IOException {
+        Set<String> set = new HashSet<>();
+        set.add("a");
+        set.add("b");
+        MappedKV kv = new MappedKV(mFile, null);
+        kv.write("string", "value", MappedKV.OP_STRING);
+        kv.write("boolean", true, MappedKV.OP_BOOLEAN);
+        kv.write("int", 42, MappedKV.OP_INT);
+        kv.write("long", 1L << 40, MappedKV.OP_LONG);
+        kv.write("float", 1.5f, MappedKV.OP_FLOAT);
+        kv.write("set", set, MappedKV.OP_STRING_SET);
+        kv.write("removed", "x", MappedKV.OP_STRING);
+        kv.write("removed", null, MappedKV.OP_REMOVE);
+        kv.write("string", "overwritten", MappedKV.OP_STRING);
+        kv.close();
+
+        Map<String, Object> map = new MappedKV(mFile, null).map();
+        assertEquals(6, map.size());
+        assertEquals("overwritten", map.get("string"));
+        assertEquals(true, map.get("boolean"));
+        assertEquals(42, map.get("int"));
+        assertEquals(1L << 40, map.get("long"));
+        assertEquals(1.5f, map.get("float"));
+        assertEquals(set, map.get("set"));
+        assertFalse(map.containsKey("removed"));
+    }
+
+    @Test
+    public void clearDropsEarlierRecords() throws IOException {
+        MappedKV kv = new MappedKV(mFile, null);
+        kv.write("before", 1, MappedKV.OP_INT);
+        kv.write(null, null, MappedKV.OP_CLEAR);
+        kv.write("after", 2, MappedKV.OP_INT);
+        kv.close();
+
+        assertEquals(Collections.<String, Object>singletonMap("after", 2), new MappedKV(mFile, null).map());
+    }
+
+    @Test
+    public void initialEntriesAreTheFirstSnapshotOnly() throws IOException {
+        Map<String, Object> initial = new HashMap<>();
+        initial.put("migrated", "yes");
+        new MappedKV(mFile, initial).close();
+
+        initial.put("migrated", "again");
+        assertEquals("yes", new MappedKV(mFile, initial).map().get("migrated"));
+    }
+
+    @Test
+    public void tornTailIsDroppedAndOverwritten() throws IOException {
+        MappedKV kv = new MappedKV(mFile, null);
+        kv.write("kept", "first-value", MappedKV.OP_STRING);
+        kv.write("torn", "second-value", MappedKV.OP_STRING);
+        kv.close();
+        // a write cut off halfway: header and key made it, part of the value didn't
+        long offset = indexOf("second-value");
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            raf.seek(offset + 6);
+            raf.write(new byte[6]);
+        } finally {
+            raf.close();
+        }
+
+        kv = new MappedKV(mFile, null);
+        assertEquals(Collections.<String, Object>singletonMap("kept", "first-value"), kv.map());
+        // a shorter record in the torn slot must not resurrect the rest of the old one
+        kv.write("next", 7, MappedKV.OP_INT);
+        kv.close();
+
+        Map<String, Object> map = new MappedKV(mFile, null).map();
+        assertEquals(2, map.size());
+        assertEquals("first-value", map.get("kept"));
+        assertEquals(7, map.get("next"));
+        assertNull(map.get("torn"));
+    }
+
+    @Test
+    public void corruptRecordEndsReplay() throws IOException {
+        MappedKV kv = new MappedKV(mFile, null);
+        kv.write("a", "alpha", MappedKV.OP_STRING);
+        kv.write("b", "bravo", MappedKV.OP_STRING);
+        kv.write("c", "charlie", MappedKV.OP_STRING);
+        kv.close();
+        // a flipped bit in the middle record fails its crc, nothing after it is trusted
+        long offset = indexOf("bravo");
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            raf.seek(offset);
+            raf.write('B');
+        } finally {
+            raf.close();
+        }
+
+        assertEquals(Collections.<String, Object>singletonMap("a", "alpha"), new MappedKV(mFile, null).map());
+    }
+
+    @Test
+    public void compactionKeepsTheLatestValues() throws IOException {
+        MappedKV kv = new MappedKV(mFile, null);
+        long initialSize = mFile.length();
+        // far more than the initial mapping, forces several rewrites
+        for (int i = 0; i < 2000; i++) {
+            kv.write("key" + (i % 10), "value" + i, MappedKV.OP_STRING);
+        }
+        kv.write("big", new String(new char[10000]).replace('\0', 'x'), MappedKV.OP_STRING);
+        kv.close();
+        assertTrue(mFile.length() > initialSize);
+        assertFalse(new File(mFile.getPath() + ".tmp").exists());
+
+        Map<String, Object> map = new MappedKV(mFile, null).map();
+        assertEquals(11, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + (1990 + i), map.get("key" + i));
+        }
+        assertEquals(10000, ((String) map.get("big")).length());
+    }
+
+    private long indexOf(String text) throws IOException {
+        byte[] needle = text.getBytes("UTF-8");
+        RandomAccessFile raf = new RandomAccessFile(mFile, "r");
+        try {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            outer:
+            for (int i = 0; i <= data.length - needle.length; i++) {
+                for (int j = 0; j < needle.length; j++) {
+                    if (data[i + j] != needle[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+        } finally {
+            raf.close();
+        }
+        throw new AssertionError(text + " not found");
+    }
+}
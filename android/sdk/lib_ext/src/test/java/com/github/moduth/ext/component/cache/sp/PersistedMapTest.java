@@ -0,0 +1,121 @@
+package com.github.moduth.ext.component.cache.sp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistedMapTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mFile = new File(mFolder.getRoot(), "persisted_map/test.journal");
+    }
+
+    @Test
+    public void replaysTheJournalAcrossBatches() {
+        PersistedMap map = new PersistedMap(mFile, null);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.flush();
+        map.put("a", 3);
+        map.remove("b");
+        map.put("c", 4);
+        map.flush();
+
+        PersistedMap reopened = new PersistedMap(mFile, null);
+        assertEquals(3, reopened.get("a"));
+        assertFalse(reopened.contains("b"));
+        assertEquals(4, reopened.get("c"));
+        assertEquals(-1, reopened.get("missing"));
+    }
+
+    @Test
+    public void clearDropsEarlierBatches() {
+        PersistedMap map = new PersistedMap(mFile, null);
+        map.put("old", 1);
+        map.flush();
+        map.clear();
+        map.put("new", 2);
+        map.flush();
+
+        PersistedMap reopened = new PersistedMap(mFile, null);
+        assertFalse(reopened.contains("old"));
+        assertEquals(2, reopened.get("new"));
+    }
+
+    @Test
+    public void tornBatchIsCutOff() throws IOException {
+        PersistedMap map = new PersistedMap(mFile, null);
+        map.put("kept", 1);
+        map.flush();
+        long valid = mFile.length();
+        // half of a batch written by a killed process
+        FileOutputStream out = new FileOutputStream(mFile, true);
+        try {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 1, 0});
+        } finally {
+            out.close();
+        }
+
+        PersistedMap reopened = new PersistedMap(mFile, null);
+        assertEquals(1, reopened.get("kept"));
+        assertEquals(valid, mFile.length());
+        // later batches follow the valid prefix and replay
+        reopened.put("next", 2);
+        reopened.flush();
+        assertEquals(2, new PersistedMap(mFile, null).get("next"));
+    }
+
+    @Test
+    public void failedWriteIsRecoveredBySnapshot() throws IOException {
+        PersistedMap map = new PersistedMap(mFile, null);
+        map.put("a", 1);
+        map.flush();
+        // the journal can't be written: both appending and renaming onto a directory fail
+        assertTrue(mFile.delete());
+        assertTrue(mFile.mkdir());
+        map.put("b", 2);
+        map.flush();
+        assertTrue(mFile.delete());
+
+        map.put("c", 3);
+        map.flush();
+
+        PersistedMap reopened = new PersistedMap(mFile, null);
+        assertEquals(1, reopened.get("a"));
+        assertEquals(2, reopened.get("b"));
+        assertEquals(3, reopened.get("c"));
+    }
+
+    @Test
+    public void compactionKeepsTheLatestValues() {
+        PersistedMap map = new PersistedMap(mFile, null);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                map.put("key" + i, round);
+            }
+            map.flush();
+        }
+        // 50 rounds of ~1.5KB batches would be far past the compaction threshold
+        assertTrue(mFile.length() < 32 * 1024);
+
+        PersistedMap reopened = new PersistedMap(mFile, null);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(49, reopened.get("key" + i));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.moduth.ext.component.cache.sp;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StringLongMapTest {
+
+    @Test
+    public void putGetRemove() {
+        StringLongMap map = new StringLongMap(4);
+        map.put("a", 1);
+        map.put("b", Long.MIN_VALUE);
+        map.put("a", 3);
+
+        assertEquals(2, map.size());
+        assertEquals(3, map.get("a", -1));
+        assertEquals(Long.MIN_VALUE, map.get("b", -1));
+        assertEquals(-1, map.get("c", -1));
+        assertTrue(map.containsKey("b"));
+
+        assertTrue(map.remove("a"));
+        assertFalse(map.remove("a"));
+        assertFalse(map.containsKey("a"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void keysBehindATombstoneStayReachable() {
+        StringLongMap map = new StringLongMap(4);
+        // same hash, so they share one probe sequence
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        map.remove("Aa");
+
+        assertEquals(2, map.get("BB", -1));
+        // the tombstone slot is reused, not a second copy of the key
+        map.put("BB", 3);
+        map.put("Aa", 4);
+        assertEquals(2, map.size());
+        assertEquals(3, map.get("BB", -1));
+        assertEquals(4, map.get("Aa", -1));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomChurn() {
+        StringLongMap map = new StringLongMap(0);
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String key = "key" + random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                long value = random.nextLong();
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        int seen = 0;
+        for (int i = 0; i < map.capacity(); i++) {
+            String key = map.keyAt(i);
+            if (key != null) {
+                seen++;
+                assertEquals(expected.get(key).longValue(), map.valueAt(i));
+            }
+        }
+        assertEquals(expected.size(), seen);
+    }
+
+    @Test
+    public void clearEmptiesEverySlot() {
+        StringLongMap map = new StringLongMap(16);
+        for (int i = 0; i < 100; i++) {
+            map.put("k" + i, i);
+        }
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey("k1"));
+        for (int i = 0; i < map.capacity(); i++) {
+            assertEquals(null, map.keyAt(i));
+        }
+        map.put("k1", 7);
+        assertEquals(7, map.get("k1", -1));
+    }
+}
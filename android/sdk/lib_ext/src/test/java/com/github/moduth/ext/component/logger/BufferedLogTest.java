@@ -0,0 +1,122 @@
+package com.github.moduth.ext.component.logger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BufferedLogTest {
+
+    private static final String TIME = "\\[logged at \\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d\\.\\d{3}\\] ";
+
+    @Test
+    public void replaysInOrderWithTheOriginalTime() {
+        BufferedLog buffer = new BufferedLog(8);
+        buffer.d("tag", "first");
+        buffer.w("second");
+        buffer.e(new IllegalStateException("boom"));
+        RecordingLog target = new RecordingLog();
+
+        buffer.drainTo(target);
+
+        assertEquals(3, target.lines.size());
+        assertTrue(target.lines.get(0), target.lines.get(0).matches("d/tag/" + TIME + "first"));
+        assertTrue(target.lines.get(1), target.lines.get(1).matches("w/null/" + TIME + "second"));
+        assertTrue(target.lines.get(2), target.lines.get(2).matches("(?s)e/Logger/" + TIME
+                + "java.lang.IllegalStateException: boom.*"));
+    }
+
+    @Test
+    public void forwardsUnchangedOnceDrained() {
+        BufferedLog buffer = new BufferedLog(8);
+        RecordingLog target = new RecordingLog();
+        buffer.drainTo(target);
+
+        buffer.i("tag", "live");
+
+        assertEquals(1, target.lines.size());
+        assertEquals("i/tag/live", target.lines.get(0));
+    }
+
+    @Test
+    public void reportsDroppedLinesFirst() {
+        BufferedLog buffer = new BufferedLog(2);
+        buffer.i("tag", "1");
+        buffer.i("tag", "2");
+        buffer.i("tag", "3");
+        RecordingLog target = new RecordingLog();
+
+        buffer.drainTo(target);
+
+        assertEquals(3, target.lines.size());
+        assertEquals("w/Logger/1 lines dropped before the logger was ready", target.lines.get(0));
+        assertTrue(target.lines.get(1).endsWith("] 2"));
+        assertTrue(target.lines.get(2).endsWith("] 3"));
+    }
+
+    private static class RecordingLog implements ILog {
+        final List<String> lines = new ArrayList<>();
+
+        private void add(String level, String tag, String text) {
+            lines.add(level + "/" + tag + "/" + text);
+        }
+
+        @Override
+        public void v(String tag, String text) {
+            add("v", tag, text);
+        }
+
+        @Override
+        public void v(String text) {
+            add("v", null, text);
+        }
+
+        @Override
+        public void d(String tag, String text) {
+            add("d", tag, text);
+        }
+
+        @Override
+        public void d(String text) {
+            add("d", null, text);
+        }
+
+        @Override
+        public void i(String tag, String text) {
+            add("i", tag, text);
+        }
+
+        @Override
+        public void i(String text) {
+            add("i", null, text);
+        }
+
+        @Override
+        public void w(String tag, String text) {
+            add("w", tag, text);
+        }
+
+        @Override
+        public void w(String text) {
+            add("w", null, text);
+        }
+
+        @Override
+        public void e(String tag, String text) {
+            add("e", tag, text);
+        }
+
+        @Override
+        public void e(Exception e) {
+            add("e", null, String.valueOf(e));
+        }
+
+        @Override
+        public void e(String text) {
+            add("e", null, text);
+        }
+    }
+}
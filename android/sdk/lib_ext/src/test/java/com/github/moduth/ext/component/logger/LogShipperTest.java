@@ -0,0 +1,169 @@
+package com.github.moduth.ext.component.logger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogShipperTest {
+
+    private static final String TRACE = "java.lang.IllegalStateException: boom\n"
+            + "\tat com.example.Foo.bar(Foo.java:10)\n"
+            + "\tat com.example.Foo.main(Foo.java:5)\n";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mLogDir;
+    private final FakeTransport mTransport = new FakeTransport();
+
+    @Before
+    public void setUp() throws IOException {
+        mLogDir = mFolder.newFolder("logs");
+    }
+
+    @Test
+    public void shipsEveryRolledFileOldestFirst() throws IOException {
+        write(LogConstants.FILE_NAME + ".2", "older\n");
+        write(LogConstants.FILE_NAME + ".1", "newer\n");
+        write(LogConstants.BINARY_FILE_NAME + ".1", "binary");
+        write(LogConstants.FILE_NAME, "current\n");
+
+        LogShipper.ship(mLogDir, mTransport, true);
+
+        assertEquals(3, mTransport.names.size());
+        List<String> text = new ArrayList<>();
+        for (int i = 0; i < mTransport.names.size(); i++) {
+            String name = mTransport.names.get(i);
+            if (name.endsWith(LogConstants.FILE_NAME + ".gz")) {
+                text.add(gunzip(mTransport.bodies.get(i)));
+            } else {
+                assertTrue(name.endsWith(LogConstants.BINARY_FILE_NAME));
+                // already compact, shipped as is
+                assertEquals("binary", new String(mTransport.bodies.get(i), "UTF-8"));
+            }
+        }
+        assertEquals(2, text.size());
+        assertEquals("older\n", text.get(0));
+        assertEquals("newer\n", text.get(1));
+
+        // the file still being written stays, the outbox is empty after success
+        assertTrue(new File(mLogDir, LogConstants.FILE_NAME).exists());
+        assertFalse(new File(mLogDir, LogConstants.FILE_NAME + ".1").exists());
+        assertEquals(0, new File(mLogDir, "upload").list().length);
+    }
+
+    @Test
+    public void repeatedStackTracesAreShippedOnce() throws IOException {
+        write(LogConstants.FILE_NAME + ".1", "first\n" + TRACE + "second\n" + TRACE + "third\n");
+
+        LogShipper.ship(mLogDir, mTransport, true);
+
+        String shipped = gunzip(mTransport.bodies.get(0));
+        String[] lines = shipped.split("\n");
+        assertEquals(9, lines.length);
+        assertEquals("first", lines[0]);
+        // the exception line is always kept, the frames only the first time
+        assertEquals("java.lang.IllegalStateException: boom", lines[1]);
+        assertTrue(lines[2].startsWith("\t[trace#"));
+        assertEquals("\tat com.example.Foo.bar(Foo.java:10)", lines[3]);
+        assertEquals("second", lines[5]);
+        assertEquals("java.lang.IllegalStateException: boom", lines[6]);
+        assertEquals(lines[2].replace("]", " repeated]"), lines[7]);
+        assertEquals("third", lines[8]);
+    }
+
+    @Test
+    public void failedUploadIsRetriedOnTheNextPass() throws IOException {
+        write(LogConstants.FILE_NAME + ".1", "line\n");
+        mTransport.failures = 1;
+
+        LogShipper.ship(mLogDir, mTransport, true);
+        assertEquals(0, mTransport.names.size());
+        assertEquals(1, new File(mLogDir, "upload").list().length);
+
+        LogShipper.ship(mLogDir, mTransport, true);
+        assertEquals(1, mTransport.names.size());
+        assertEquals("line\n", gunzip(mTransport.bodies.get(0)));
+        assertEquals(0, new File(mLogDir, "upload").list().length);
+    }
+
+    @Test
+    public void offlinePassOnlyPacks() throws IOException {
+        write(LogConstants.FILE_NAME + ".1", "line\n");
+
+        LogShipper.ship(mLogDir, mTransport, false);
+
+        assertEquals(0, mTransport.names.size());
+        String[] outbox = new File(mLogDir, "upload").list();
+        assertEquals(1, outbox.length);
+        assertTrue(outbox[0].endsWith(".gz"));
+    }
+
+    private void write(String name, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(mLogDir, name));
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        try {
+            return new String(readAll(in), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Records what was uploaded, fails the first {@link #failures} calls.
+     */
+    private static class FakeTransport implements LogTransport {
+        final List<String> names = new ArrayList<>();
+        final List<byte[]> bodies = new ArrayList<>();
+        int failures;
+
+        @Override
+        public void upload(File archive) throws IOException {
+            if (failures > 0) {
+                failures--;
+                throw new IOException("offline");
+            }
+            InputStream in = new FileInputStream(archive);
+            try {
+                bodies.add(readAll(in));
+            } finally {
+                in.close();
+            }
+            names.add(archive.getName());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.moduth.ext.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AtomicPoolTest {
+
+    @Test
+    public void holdsExactlyTheCapacityWithRemainderStripes() {
+        // 10 slots over 4 stripes: 3, 3, 2, 2
+        Pool.AtomicPool<Object> pool = new Pool.AtomicPool<>(10, 4);
+        Set<Object> items = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            Object item = new Object();
+            items.add(item);
+            pool.put(item);
+        }
+
+        Set<Object> taken = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Object item = pool.get();
+            assertTrue(items.contains(item));
+            taken.add(item);
+        }
+        assertEquals(10, taken.size());
+        assertNull(pool.get());
+    }
+
+    @Test
+    public void clampsStripesToTheCapacity() {
+        Pool.AtomicPool<Object> pool = new Pool.AtomicPool<>(2, 8);
+        pool.put(new Object());
+        pool.put(new Object());
+        pool.put(new Object());
+
+        assertTrue(pool.get() != null);
+        assertTrue(pool.get() != null);
+        assertNull(pool.get());
+    }
+
+    @Test
+    public void dropsItemsWhenFull() {
+        Pool.AtomicPool<Object> pool = new Pool.AtomicPool<>(1, 1);
+        Object kept = new Object();
+        pool.put(kept);
+        pool.put(new Object());
+        pool.put(null);
+
+        assertSame(kept, pool.get());
+        assertNull(pool.get());
+    }
+
+    @Test
+    public void reusesItemsAcrossStripes() throws InterruptedException {
+        final int stripes = 4;
+        final Pool.AtomicPool<Object> pool = new Pool.AtomicPool<>(stripes, stripes);
+        Object item = new Object();
+        pool.put(item);
+
+        final long home = Thread.currentThread().getId() % stripes;
+        final AtomicReference<Object> got = new AtomicReference<>();
+        Thread other;
+        do {
+            other = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    if (Thread.currentThread().getId() % stripes != home) {
+                        got.set(pool.get());
+                    }
+                }
+            });
+            other.start();
+            other.join();
+        } while (other.getId() % stripes == home);
+
+        assertSame(item, got.get());
+        assertEquals(1, pool.hitCount());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        Pool.AtomicPool<Object> pool = new Pool.AtomicPool<Object>(4, 2) {
+            @Override
+            protected Object create() {
+                return new Object();
+            }
+        };
+        Object created = pool.get();
+        pool.put(created);
+        assertSame(created, pool.get());
+        pool.get();
+        pool.get();
+
+        assertEquals(1, pool.hitCount());
+        assertEquals(3, pool.missCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new Pool.AtomicPool<Object>(0, 1);
+    }
+}
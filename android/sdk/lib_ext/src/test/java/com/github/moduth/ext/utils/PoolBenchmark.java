@@ -0,0 +1,89 @@
+package com.github.moduth.ext.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次get加一次put，对比{@link Pool}的四种实现。线程数用jmh的-t参数调，例如：
+ * <pre>
+ * ./gradlew :lib_ext:jmh -PjmhArgs="PoolBenchmark -t 1"
+ * ./gradlew :lib_ext:jmh -PjmhArgs="PoolBenchmark -t 4"
+ * </pre>
+ * SimplePool不是线程安全的，所以每个线程一个，作为没有竞争时的基线。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolBenchmark {
+
+    private static final int CAPACITY = 32;
+
+    @State(Scope.Benchmark)
+    public static class SharedPools {
+        final Pool<Object> synchronizedPool = new Pool.SynchronizedPool<Object>(CAPACITY) {
+            @Override
+            protected Object create() {
+                return new Object();
+            }
+        };
+        final Pool<Object> threadLocalPool = new Pool.ThreadLocalPool<Object>(CAPACITY) {
+            @Override
+            protected Object create() {
+                return new Object();
+            }
+        };
+        final Pool<Object> atomicPool = new Pool.AtomicPool<Object>(CAPACITY) {
+            @Override
+            protected Object create() {
+                return new Object();
+            }
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadPools {
+        final Pool<Object> simplePool = new Pool.SimplePool<Object>(CAPACITY) {
+            @Override
+            protected Object create() {
+                return new Object();
+            }
+        };
+    }
+
+    @Benchmark
+    public Object simple(ThreadPools pools) {
+        return cycle(pools.simplePool);
+    }
+
+    @Benchmark
+    public Object synchronizedPool(SharedPools pools) {
+        return cycle(pools.synchronizedPool);
+    }
+
+    @Benchmark
+    public Object threadLocal(SharedPools pools) {
+        return cycle(pools.threadLocalPool);
+    }
+
+    @Benchmark
+    public Object atomic(SharedPools pools) {
+        return cycle(pools.atomicPool);
+    }
+
+    private static Object cycle(Pool<Object> pool) {
+        Object item = pool.get();
+        pool.put(item);
+        return item;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.logformat;
+
+import java.util.HashMap;
+
+/**
+ * Encodes records into one in-memory block of {@link BinaryLogFormat}, not thread-safe.
+ * <p/>
+ * 只做varint和UTF-8编码，不分配中间byte[]；块满后由调用方取走 {@link #buffer()}，
+ * 交给 {@link BinaryLogBlockWriter} 写盘，再用 {@link #reset(byte[])} 换一块继续。
+ */
+public class BinaryLogBlock {
+
+    // header byte + time delta + tag index + two string lengths
+    private static final int MAX_RECORD_OVERHEAD = 1 + 10 + 5 + 5 + 5;
+
+    private final HashMap<String, Integer> tags = new HashMap<>();
+    private byte[] buf;
+    private int pos;
+    private long lastTime;
+
+    public BinaryLogBlock(byte[] buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Appends a record. A record larger than an empty block grows the buffer, so it always fits
+     * on its own.
+     *
+     * @return false if the block already holds records and this one does not fit, nothing is written
+     */
+    public boolean append(long time, int level, String tag, String message) {
+        Integer tagIndex = tags.get(tag);
+        int tagBytes = tagIndex == null ? BinaryLogFormat.utf8Length(tag) : 0;
+        int messageBytes = BinaryLogFormat.utf8Length(message);
+        int needed = MAX_RECORD_OVERHEAD + tagBytes + messageBytes;
+        if (pos + needed > buf.length) {
+            if (pos > 0) {
+                return false;
+            }
+            buf = new byte[needed];
+        }
+
+        int p = pos;
+        int header = level & BinaryLogFormat.LEVEL_MASK;
+        if (tagIndex == null) {
+            header |= BinaryLogFormat.HEADER_NEW_TAG;
+            tagIndex = tags.size();
+            tags.put(tag, tagIndex);
+        }
+        buf[p++] = (byte) header;
+        p = BinaryLogFormat.writeVarint(buf, p, BinaryLogFormat.zigzag(time - lastTime));
+        p = BinaryLogFormat.writeVarint(buf, p, tagIndex);
+        if ((header & BinaryLogFormat.HEADER_NEW_TAG) != 0) {
+            p = BinaryLogFormat.writeVarint(buf, p, tagBytes);
+            p = BinaryLogFormat.writeUtf8(buf, p, tag);
+        }
+        p = BinaryLogFormat.writeVarint(buf, p, messageBytes);
+        p = BinaryLogFormat.writeUtf8(buf, p, message);
+        pos = p;
+        lastTime = time;
+        return true;
+    }
+
+    /**
+     * @return the buffer holding the encoded records, larger than the initial one after an oversized record
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * @return number of encoded bytes in {@link #buffer()}
+     */
+    public int size() {
+        return pos;
+    }
+
+    /**
+     * Starts a new block on {@code next}, tag table and time base start over.
+     */
+    public void reset(byte[] next) {
+        buf = next;
+        pos = 0;
+        lastTime = 0;
+        tags.clear();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.logformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Frames encoded blocks of {@link BinaryLogFormat} onto a stream, not thread-safe.
+ */
+public class BinaryLogBlockWriter {
+
+    private final boolean compress;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] blockHeader = new byte[BinaryLogFormat.MAX_BLOCK_HEADER];
+    private byte[] deflated = new byte[0];
+
+    /**
+     * @param compress deflate every block that shrinks
+     */
+    public BinaryLogBlockWriter(boolean compress) {
+        this.compress = compress;
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    }
+
+    /**
+     * Writes MAGIC and VERSION, once at the start of every file.
+     *
+     * @return number of bytes written
+     */
+    public static int writeFileHeader(OutputStream out) throws IOException {
+        out.write(BinaryLogFormat.MAGIC);
+        out.write(BinaryLogFormat.VERSION);
+        return BinaryLogFormat.MAGIC.length + 1;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public int writeBlock(OutputStream out, byte[] raw, int rawLength) throws IOException {
+        byte[] stored = raw;
+        int storedLength = rawLength;
+        int flags = 0;
+        if (compress) {
+            int length = deflate(raw, rawLength);
+            if (length > 0) {
+                stored = deflated;
+                storedLength = length;
+                flags |= BinaryLogFormat.FLAG_DEFLATE;
+            }
+        }
+        crc.reset();
+        crc.update(stored, 0, storedLength);
+        long value = crc.getValue();
+
+        int h = 0;
+        blockHeader[h++] = (byte) flags;
+        h = BinaryLogFormat.writeVarint(blockHeader, h, rawLength);
+        h = BinaryLogFormat.writeVarint(blockHeader, h, storedLength);
+        blockHeader[h++] = (byte) (value >>> 24);
+        blockHeader[h++] = (byte) (value >>> 16);
+        blockHeader[h++] = (byte) (value >>> 8);
+        blockHeader[h++] = (byte) value;
+
+        out.write(blockHeader, 0, h);
+        out.write(stored, 0, storedLength);
+        return h + storedLength;
+    }
+
+    /**
+     * @return deflated length, or 0 if the block does not shrink
+     */
+    private int deflate(byte[] raw, int rawLength) {
+        if (deflated.length < rawLength) {
+            deflated = new byte[rawLength];
+        }
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished() && length < rawLength) {
+            length += deflater.deflate(deflated, length, rawLength - length);
+        }
+        return deflater.finished() && length < rawLength ? length : 0;
+    }
+
+    /**
+     * Cuts a block torn by a previous crash off the end of {@code file} so blocks appended
+     * afterwards stay readable. A file without a valid header is emptied.
+     *
+     * @return valid length of the file, 0 if it has to be started over with {@link #writeFileHeader}
+     */
+    public static long recover(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long length = raf.length();
+            byte[] magic = new byte[BinaryLogFormat.MAGIC.length];
+            if (length <= magic.length) {
+                raf.setLength(0);
+                return 0;
+            }
+            raf.readFully(magic);
+            if (!Arrays.equals(magic, BinaryLogFormat.MAGIC) || raf.read() != BinaryLogFormat.VERSION) {
+                raf.setLength(0);
+                return 0;
+            }
+            long valid = raf.getFilePointer();
+            while (valid < length) {
+                raf.seek(valid);
+                if (raf.read() < 0) {
+                    break;
+                }
+                long raw = readVarint(raf);
+                long stored = readVarint(raf);
+                long end = raf.getFilePointer() + 4 + stored;
+                if (raw < 0 || stored < 0 || end > length) {
+                    break;
+                }
+                valid = end;
+            }
+            if (valid < length) {
+                raf.setLength(valid);
+            }
+            return valid;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static long readVarint(RandomAccessFile raf) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = raf.read();
+            if (b < 0) {
+                return -1;
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
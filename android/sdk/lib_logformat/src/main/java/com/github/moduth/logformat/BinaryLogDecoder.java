@@ -0,0 +1,95 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.logformat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Command line tool turning binary log files back into the text log layout
+ * ({@code %d - [%p::%c] - %m%n}).
+ * <p/>
+ * Usage: {@code BinaryLogDecoder petLover.blog.2 petLover.blog.1 petLover.blog > petLover.log}
+ */
+public class BinaryLogDecoder {
+
+    private static final String LOGGER_NAME = "Logger";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: BinaryLogDecoder <file>...");
+            System.exit(1);
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"));
+        int failures = 0;
+        for (String path : args) {
+            try {
+                decode(path, dateFormat, out);
+            } catch (IOException e) {
+                out.flush();
+                System.err.println(path + ": " + e.getMessage());
+                failures++;
+            }
+        }
+        out.flush();
+        if (failures > 0) {
+            System.exit(2);
+        }
+    }
+
+    private static void decode(String path, SimpleDateFormat dateFormat, Writer out) throws IOException {
+        BinaryLogReader reader = new BinaryLogReader(new BufferedInputStream(new FileInputStream(path)));
+        try {
+            Date date = new Date();
+            BinaryLogReader.Record record;
+            while ((record = reader.next()) != null) {
+                date.setTime(record.time);
+                out.write(dateFormat.format(date));
+                out.write(" - [");
+                out.write(BinaryLogFormat.levelName(record.level));
+                out.write("::");
+                out.write(LOGGER_NAME);
+                out.write("] - [");
+                out.write(record.tag);
+                out.write(']');
+                out.write(record.message);
+                out.write('\n');
+            }
+            if (reader.isTruncated()) {
+                out.flush();
+                System.err.println(path + ": last block incomplete, skipped");
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.logformat;
+
+/**
+ * Compact binary log layout shared by the on-device writer and {@link BinaryLogDecoder}.
+ * <p/>
+ * <pre>
+ * file   := MAGIC VERSION block*
+ * block  := flags:u8 rawLength:varint storedLength:varint crc32:u32 stored[storedLength]
+ *           (stored is the raw records, deflated when flags has FLAG_DEFLATE)
+ * record := header:u8 timeDelta:zigzag-varint tagIndex:varint [tag:string] message:string
+ *           header bits 0-2 level, bit 3 set when tag is new in this block
+ * string := length:varint utf8[length]
+ * </pre>
+ * Tag table and timestamp base are reset at every block, so each block decodes on its own
+ * and a torn block at the end of a file only loses that block.
+ */
+public final class BinaryLogFormat {
+
+    public static final byte[] MAGIC = {'P', 'L', 'B', 'L'};
+    public static final int VERSION = 1;
+
+    public static final int FLAG_DEFLATE = 1;
+
+    public static final int LEVEL_MASK = 0x07;
+    public static final int HEADER_NEW_TAG = 0x08;
+
+    public static final int LEVEL_VERBOSE = 0;
+    public static final int LEVEL_DEBUG = 1;
+    public static final int LEVEL_INFO = 2;
+    public static final int LEVEL_WARN = 3;
+    public static final int LEVEL_ERROR = 4;
+
+    // same names as the text log written through log4j
+    private static final String[] LEVEL_NAMES = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR"};
+
+    /**
+     * bytes of block header before the stored data, at most
+     */
+    public static final int MAX_BLOCK_HEADER = 1 + 5 + 5 + 4;
+
+    private BinaryLogFormat() {
+    }
+
+    public static String levelName(int level) {
+        return level >= 0 && level < LEVEL_NAMES.length ? LEVEL_NAMES[level] : "L" + level;
+    }
+
+    /**
+     * @return position after the written varint
+     */
+    public static int writeVarint(byte[] buf, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return number of bytes {@link #writeUtf8} will produce for {@code s}
+     */
+    public static int utf8Length(CharSequence s) {
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes without an intermediate byte[], the caller must have reserved {@link #utf8Length} bytes.
+     *
+     * @return position after the written bytes
+     */
+    public static int writeUtf8(byte[] buf, int pos, CharSequence s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                // lone surrogates are written as-is, like Modified UTF-8
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
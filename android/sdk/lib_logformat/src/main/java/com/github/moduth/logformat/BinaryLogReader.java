@@ -0,0 +1,199 @@
+/*
+ * The GPL License (GPL)
+ *
+ * Copyright (c) 2016 MarkZhai (http://zhaiyifan.cn)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.moduth.logformat;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads records back from a stream in {@link BinaryLogFormat}.
+ */
+public class BinaryLogReader implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public static class Record {
+        public long time;
+        public int level;
+        public String tag;
+        public String message;
+    }
+
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private final CRC32 crc = new CRC32();
+    private final List<String> tags = new ArrayList<>();
+
+    private byte[] stored = new byte[0];
+    private byte[] block = new byte[0];
+    private int blockLength;
+    private int pos;
+    private long lastTime;
+    private boolean truncated;
+
+    public BinaryLogReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] magic = new byte[BinaryLogFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, BinaryLogFormat.MAGIC)) {
+            throw new IOException("not a binary log file");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != BinaryLogFormat.VERSION) {
+            throw new IOException("unsupported binary log version " + version);
+        }
+    }
+
+    /**
+     * @return next record, or null at the end of the stream
+     */
+    public Record next() throws IOException {
+        while (pos >= blockLength) {
+            if (!readBlock()) {
+                return null;
+            }
+        }
+        Record record = new Record();
+        int header = block[pos++] & 0xFF;
+        lastTime += BinaryLogFormat.unzigzag(readVarint());
+        record.time = lastTime;
+        record.level = header & BinaryLogFormat.LEVEL_MASK;
+        int tagIndex = (int) readVarint();
+        if ((header & BinaryLogFormat.HEADER_NEW_TAG) != 0) {
+            tags.add(readString());
+        }
+        if (tagIndex >= tags.size()) {
+            throw new IOException("corrupt record, unknown tag " + tagIndex);
+        }
+        record.tag = tags.get(tagIndex);
+        record.message = readString();
+        return record;
+    }
+
+    /**
+     * @return true if the last block was torn, e.g. the process died while writing it
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    private boolean readBlock() throws IOException {
+        int flags = in.read();
+        if (flags < 0) {
+            return false;
+        }
+        int rawLength;
+        try {
+            rawLength = (int) readStreamVarint();
+            int storedLength = (int) readStreamVarint();
+            long expectedCrc = in.readInt() & 0xFFFFFFFFL;
+            if (stored.length < storedLength) {
+                stored = new byte[storedLength];
+            }
+            in.readFully(stored, 0, storedLength);
+            crc.reset();
+            crc.update(stored, 0, storedLength);
+            if (crc.getValue() != expectedCrc) {
+                truncated = true;
+                return false;
+            }
+            if (block.length < rawLength) {
+                block = new byte[rawLength];
+            }
+            if ((flags & BinaryLogFormat.FLAG_DEFLATE) != 0) {
+                inflater.reset();
+                inflater.setInput(stored, 0, storedLength);
+                if (inflater.inflate(block, 0, rawLength) != rawLength) {
+                    throw new IOException("corrupt block, short inflate");
+                }
+            } else {
+                System.arraycopy(stored, 0, block, 0, rawLength);
+            }
+        } catch (EOFException e) {
+            truncated = true;
+            return false;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt block", e);
+        }
+        blockLength = rawLength;
+        pos = 0;
+        lastTime = 0;
+        tags.clear();
+        return true;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= blockLength) {
+                throw new IOException("corrupt record, varint past block end");
+            }
+            byte b = block[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("corrupt record, varint too long");
+    }
+
+    private long readStreamVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("corrupt block header");
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarint();
+        if (length < 0 || pos + length > blockLength) {
+            throw new IOException("corrupt record, string past block end");
+        }
+        String s = new String(block, pos, length, UTF_8);
+        pos += length;
+        return s;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+}
@@ -0,0 +1,208 @@
+package com.github.moduth.logformat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryLogReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsMultipleBlocks() throws IOException {
+        for (boolean compress : new boolean[]{true, false}) {
+            File file = folder.newFile();
+            BinaryLogBlock block = new BinaryLogBlock(new byte[256]);
+            List<String> expected = new ArrayList<>();
+            FileOutputStream out = new FileOutputStream(file);
+            BinaryLogBlockWriter writer = new BinaryLogBlockWriter(compress);
+            BinaryLogBlockWriter.writeFileHeader(out);
+            int blocks = 0;
+            for (int i = 0; i < 100; i++) {
+                String tag = "tag" + (i % 3);
+                String message = "message " + i;
+                // the clock may go backwards, deltas are zigzag encoded
+                long time = 1000000L + (i % 7 == 0 ? -i : i * 10);
+                if (!block.append(time, i % 5, tag, message)) {
+                    writer.writeBlock(out, block.buffer(), block.size());
+                    blocks++;
+                    block.reset(new byte[256]);
+                    assertTrue(block.append(time, i % 5, tag, message));
+                }
+                expected.add(time + " " + (i % 5) + " " + tag + " " + message);
+            }
+            writer.writeBlock(out, block.buffer(), block.size());
+            out.close();
+
+            assertTrue(blocks > 3);
+            assertEquals(expected, readAll(file));
+        }
+    }
+
+    @Test
+    public void tagTableStartsOverInEveryBlock() throws IOException {
+        BinaryLogBlock block = new BinaryLogBlock(new byte[64]);
+        assertTrue(block.append(1, BinaryLogFormat.LEVEL_INFO, "net", "a"));
+        assertTrue(block.append(2, BinaryLogFormat.LEVEL_INFO, "net", "b"));
+        byte[] first = copy(block);
+
+        block.reset(new byte[64]);
+        assertTrue(block.append(3, BinaryLogFormat.LEVEL_INFO, "net", "c"));
+        byte[] second = copy(block);
+
+        assertTrue((first[0] & BinaryLogFormat.HEADER_NEW_TAG) != 0);
+        assertTrue((second[0] & BinaryLogFormat.HEADER_NEW_TAG) != 0);
+
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        BinaryLogBlockWriter.writeFileHeader(out);
+        BinaryLogBlockWriter writer = new BinaryLogBlockWriter(true);
+        writer.writeBlock(out, first, first.length);
+        writer.writeBlock(out, second, second.length);
+        out.close();
+
+        List<String> records = readAll(file);
+        assertEquals(3, records.size());
+        assertEquals("3 2 net c", records.get(2));
+    }
+
+    @Test
+    public void oversizedRecordGetsABlockOfItsOwn() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 10000) {
+            sb.append("0123456789");
+        }
+        String huge = sb.toString();
+
+        BinaryLogBlock block = new BinaryLogBlock(new byte[128]);
+        assertTrue(block.append(1, BinaryLogFormat.LEVEL_DEBUG, "t", "small"));
+        assertFalse(block.append(2, BinaryLogFormat.LEVEL_DEBUG, "t", huge));
+        assertEquals(128, block.buffer().length);
+
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        BinaryLogBlockWriter.writeFileHeader(out);
+        BinaryLogBlockWriter writer = new BinaryLogBlockWriter(true);
+        writer.writeBlock(out, block.buffer(), block.size());
+        block.reset(new byte[128]);
+        assertTrue(block.append(2, BinaryLogFormat.LEVEL_DEBUG, "t", huge));
+        assertTrue(block.buffer().length > 10000);
+        writer.writeBlock(out, block.buffer(), block.size());
+        out.close();
+
+        List<String> records = readAll(file);
+        assertEquals(2, records.size());
+        assertEquals("2 1 t " + huge, records.get(1));
+    }
+
+    @Test
+    public void keepsTextOutsideTheBmp() throws IOException {
+        String tag = "宠物";
+        String message = "🐶 汪 é 😺";
+        assertEquals(message.getBytes("UTF-8").length, BinaryLogFormat.utf8Length(message));
+
+        BinaryLogBlock block = new BinaryLogBlock(new byte[64]);
+        assertTrue(block.append(5, BinaryLogFormat.LEVEL_WARN, tag, message));
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        BinaryLogBlockWriter.writeFileHeader(out);
+        new BinaryLogBlockWriter(false).writeBlock(out, block.buffer(), block.size());
+        out.close();
+
+        assertEquals("5 3 " + tag + " " + message, readAll(file).get(0));
+    }
+
+    @Test
+    public void recoversFromATornLastBlock() throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        BinaryLogBlockWriter writer = new BinaryLogBlockWriter(true);
+        long valid = BinaryLogBlockWriter.writeFileHeader(out);
+        valid += writeBlock(writer, out, 1, "first");
+        writeBlock(writer, out, 2, "second");
+        out.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(file));
+        try {
+            assertEquals("first", reader.next().message);
+            assertNull(reader.next());
+            assertTrue(reader.isTruncated());
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(valid, BinaryLogBlockWriter.recover(file));
+        assertEquals(valid, file.length());
+
+        // blocks appended after recovery are readable again
+        out = new FileOutputStream(file, true);
+        writeBlock(writer, out, 3, "third");
+        out.close();
+        reader = new BinaryLogReader(new FileInputStream(file));
+        try {
+            assertEquals("first", reader.next().message);
+            assertEquals("third", reader.next().message);
+            assertNull(reader.next());
+            assertFalse(reader.isTruncated());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void recoverStartsOverWithoutAHeader() throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{'n', 'o', 'p', 'e', 1, 2, 3});
+        out.close();
+
+        assertEquals(0, BinaryLogBlockWriter.recover(file));
+        assertEquals(0, file.length());
+    }
+
+    private static int writeBlock(BinaryLogBlockWriter writer, FileOutputStream out, long time,
+                                  String message) throws IOException {
+        BinaryLogBlock block = new BinaryLogBlock(new byte[64]);
+        block.append(time, BinaryLogFormat.LEVEL_ERROR, "crash", message);
+        return writer.writeBlock(out, block.buffer(), block.size());
+    }
+
+    private static byte[] copy(BinaryLogBlock block) {
+        byte[] bytes = new byte[block.size()];
+        System.arraycopy(block.buffer(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static List<String> readAll(File file) throws IOException {
+        List<String> records = new ArrayList<>();
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(file));
+        try {
+            BinaryLogReader.Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record.time + " " + record.level + " " + record.tag + " " + record.message);
+            }
+            assertFalse(reader.isTruncated());
+        } finally {
+            reader.close();
+        }
+        return records;
+    }
+}